@@ -0,0 +1,77 @@
+package dev.nipafx.scia;
+
+import dev.nipafx.scia.misc.Fanout;
+import dev.nipafx.scia.misc.Fanout.Pair;
+import dev.nipafx.scia.misc.Fanout.Triple;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Callable;
+import java.util.concurrent.StructuredTaskScope;
+
+class Allocations {
+
+	private static final Logger LOG = LoggerFactory.getLogger(Allocations.class);
+
+
+	/**
+	 * Compares the bytes allocated per tiny fan-out (two trivial tasks) with a plain scope and with `Fanout`.
+	 *
+	 * <p>This counts what the calling (platform) thread allocates: scope, joiner, subtasks, virtual threads,
+	 * and results. What the virtual threads allocate themselves (e.g. their stacks) isn't included.
+	 * It's a rough measurement, not a rigorous benchmark - use JMH with its GC profiler for that.
+	 */
+	static class TinyFanout {
+
+		private static final int WARMUP_ROUNDS = 20_000;
+		private static final int MEASURED_ROUNDS = 100_000;
+
+		private static final com.sun.management.ThreadMXBean THREADS =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+		void main() throws Exception {
+			measure("scope with two forks", TinyFanout::withScope);
+			measure("Fanout::fork2", () -> Fanout.fork2(() -> 1, () -> 2));
+			measure("scope with three forks", TinyFanout::withScopeOfThree);
+			measure("Fanout::fork3", () -> Fanout.fork3(() -> 1, () -> 2, () -> 3));
+		}
+
+		private static Pair<Integer, Integer> withScope() throws InterruptedException {
+			try (var scope = StructuredTaskScope.open()) {
+				var subtaskA = scope.fork(() -> 1);
+				var subtaskB = scope.fork(() -> 2);
+				scope.join();
+				return new Pair<>(subtaskA.get(), subtaskB.get());
+			}
+		}
+
+		private static Triple<Integer, Integer, Integer> withScopeOfThree() throws InterruptedException {
+			try (var scope = StructuredTaskScope.open()) {
+				var subtaskA = scope.fork(() -> 1);
+				var subtaskB = scope.fork(() -> 2);
+				var subtaskC = scope.fork(() -> 3);
+				scope.join();
+				return new Triple<>(subtaskA.get(), subtaskB.get(), subtaskC.get());
+			}
+		}
+
+		private static void measure(String label, Callable<?> fanout) throws Exception {
+			for (int i = 0; i < WARMUP_ROUNDS; i++)
+				fanout.call();
+
+			var startBytes = THREADS.getCurrentThreadAllocatedBytes();
+			var startTime = System.nanoTime();
+			for (int i = 0; i < MEASURED_ROUNDS; i++)
+				fanout.call();
+			var time = System.nanoTime() - startTime;
+			var bytes = THREADS.getCurrentThreadAllocatedBytes() - startBytes;
+
+			// only the calling thread's allocations are counted, not those of the forked virtual threads
+			LOG.info("{}: {} bytes (calling thread only) and {}ns per fan-out",
+					label, bytes / MEASURED_ROUNDS, time / MEASURED_ROUNDS);
+		}
+
+	}
+
+}
@@ -1,12 +1,26 @@
 package dev.nipafx.scia;
 
 import dev.nipafx.scia.misc.Items;
+import dev.nipafx.scia.observe.SampledLogger.Sampling;
+import dev.nipafx.scia.pipeline.OrderedParallelMap;
+import dev.nipafx.scia.queue.BlockingMessageQueue;
+import dev.nipafx.scia.queue.Codec;
+import dev.nipafx.scia.queue.ConsumerGroup;
+import dev.nipafx.scia.queue.KeyedExecutor;
 import dev.nipafx.scia.queue.LeastRecentMessageQueue;
 import dev.nipafx.scia.queue.MostRecentMessagesQueue;
+import dev.nipafx.scia.queue.SharedMemoryQueue;
+import dev.nipafx.scia.queue.SocketReceiver;
+import dev.nipafx.scia.queue.SocketSender;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
 import java.util.concurrent.StructuredTaskScope;
+import java.util.random.RandomGenerator;
 
 class Backpressure {
 
@@ -44,4 +58,155 @@ class Backpressure {
 
 	}
 
+
+	static class OrderedValidation {
+
+		void main() throws InterruptedException {
+			var produced = new BlockingMessageQueue<String>(16);
+			var validated = new BlockingMessageQueue<String>(16);
+			// validation takes up to 500ms per item, so it runs on four subtasks - but items stay in order
+			var validation = new OrderedParallelMap<String, String>(OrderedValidation::validate, 4, 8);
+
+			try (var scope = StructuredTaskScope.open()) {
+				scope.fork(() -> Items.produce(100, produced));
+				scope.fork(() -> validation.run(produced, validated));
+				scope.fork(() -> Items.consume(0, validated));
+
+				scope.join();
+			}
+		}
+
+		private static String validate(String item) throws InterruptedException {
+			Thread.sleep(RandomGenerator.getDefault().nextInt(500));
+			return item + " ✔";
+		}
+
+	}
+
+
+	static class UnevenPartitions {
+
+		void main() throws InterruptedException {
+			var partitions = List.of(
+					new BlockingMessageQueue<String>(100),
+					new BlockingMessageQueue<String>(100),
+					new BlockingMessageQueue<String>(100));
+			// the first partition gets most items, so the other consumers steal from it
+			var group = new ConsumerGroup<>(partitions, 3, 10, UnevenPartitions::process);
+
+			try (var scope = StructuredTaskScope.open()) {
+				// ~50 items per second are too many to log each of them
+				scope.fork(() -> Items.produce(20, partitions.get(0), Sampling.atMostPerSecond(5)));
+				scope.fork(() -> Items.produce(500, partitions.get(1)));
+				scope.fork(() -> Items.produce(1000, partitions.get(2)));
+				scope.fork(group::serve);
+
+				scope.join();
+			}
+		}
+
+		private static void process(String item) throws InterruptedException {
+			Thread.sleep(50);
+			LOG.info("↓ {} processed", item);
+		}
+
+	}
+
+
+	static class PerKeyOrder {
+
+		void main() throws InterruptedException {
+			// items are keyed by their number modulo 4 - the executor processes items with the same key
+			// in order (and idle partitions retire after a second)
+			var executor = new KeyedExecutor<Integer, String>(
+					"per-key-order", PerKeyOrder::keyOf, PerKeyOrder::process, 16, 10, Duration.ofSeconds(1));
+
+			try (var scope = StructuredTaskScope.open()) {
+				scope.fork(executor::serve);
+				scope.fork(() -> Items.produce(50, executor));
+
+				scope.join();
+			}
+		}
+
+		private static int keyOf(String item) {
+			return Integer.parseInt(item.substring("Item #".length())) % 4;
+		}
+
+		private static void process(String item) throws InterruptedException {
+			Thread.sleep(150);
+			LOG.info("↓ {} processed (key {})", item, keyOf(item));
+		}
+
+	}
+
+
+	// run the writer first, then one or more readers in other JVMs
+	private static final Path SHARED_QUEUE = Path.of("/dev/shm/scia-items");
+
+
+	static class SharedMemoryWriter {
+
+		void main() throws InterruptedException, IOException {
+			try (var queue = SharedMemoryQueue.create(SHARED_QUEUE, 1024, 256, Codec.utf8());
+				 var scope = StructuredTaskScope.open()) {
+				scope.fork(() -> Items.produce(200, queue));
+
+				scope.join();
+			}
+		}
+
+	}
+
+
+	static class SharedMemoryReader {
+
+		void main() throws InterruptedException, IOException {
+			try (var queue = SharedMemoryQueue.open(SHARED_QUEUE, Codec.utf8());
+				 var scope = StructuredTaskScope.open()) {
+				scope.fork(() -> Items.consume(1000, queue));
+
+				scope.join();
+			}
+		}
+
+	}
+
+
+	// run the consumer first, then the producer in another JVM
+	private static final Path SOCKET = Path.of("/tmp/scia-items.sock");
+
+
+	static class SocketProducer {
+
+		void main() throws InterruptedException, IOException {
+			var sender = SocketSender.connect(SOCKET, Codec.utf8(), 256, 64);
+
+			try (var scope = StructuredTaskScope.open()) {
+				scope.fork(sender::serve);
+				scope.fork(() -> Items.produce(200, sender));
+
+				scope.join();
+			}
+		}
+
+	}
+
+
+	static class SocketConsumer {
+
+		void main() throws InterruptedException {
+			var queue = new BlockingMessageQueue<String>(16);
+			var receiver = new SocketReceiver<>(SOCKET, Codec.utf8(), 256, 64, 64, queue);
+
+			try (var scope = StructuredTaskScope.open()) {
+				scope.fork(receiver::serve);
+				scope.fork(() -> Items.consume(1000, queue));
+
+				scope.join();
+			}
+		}
+
+	}
+
 }
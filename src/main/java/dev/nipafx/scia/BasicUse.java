@@ -10,6 +10,7 @@ import java.util.concurrent.StructuredTaskScope;
 import java.util.concurrent.StructuredTaskScope.FailedException;
 import java.util.concurrent.StructuredTaskScope.Subtask;
 
+import static dev.nipafx.scia.task.Task.formatHistories;
 import static dev.nipafx.scia.task.Task.formatResults;
 import static dev.nipafx.scia.task.Task.formatStates;
 import static java.util.concurrent.StructuredTaskScope.Subtask.State.FAILED;
@@ -59,6 +60,7 @@ class BasicUse {
 				scope.join();
 
 				LOG.info(formatStates(taskA, taskB, taskC));
+				LOG.info(formatHistories(taskA, taskB, taskC));
 			}
 			LOG.info("Done");
 		}
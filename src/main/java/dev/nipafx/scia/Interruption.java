@@ -1,5 +1,9 @@
 package dev.nipafx.scia;
 
+import dev.nipafx.scia.misc.CpuBound;
+import dev.nipafx.scia.misc.Deadline;
+import dev.nipafx.scia.observe.CarrierMonitor;
+import dev.nipafx.scia.observe.InstrumentedThreadFactory;
 import dev.nipafx.scia.observe.ThreadDumper;
 import dev.nipafx.scia.task.Behavior;
 import dev.nipafx.scia.task.Task;
@@ -77,6 +81,58 @@ class Interruption {
 	}
 
 
+	static class PropagateDeadline {
+
+		void main() throws InterruptedException {
+			var taskA = new Task("A (outer)");
+			var taskB = new Task("B (inner)");
+			var taskC = new Task("C (inner)");
+
+			try {
+				Deadline.within(Duration.ofMillis(500), () -> outer(taskA, taskB, taskC));
+			} catch (TimeoutException ex) {
+				LOG.error("The scope timed out");
+				LOG.error(formatStates(taskA, taskB, taskC));
+			} catch (FailedException ex) {
+				LOG.error("A task failed");
+				LOG.error(formatStates(taskA, taskB, taskC));
+			}
+			LOG.info("Done");
+		}
+
+		Void outer(Task taskA, Task taskB, Task taskC) throws InterruptedException {
+			try (var scope = StructuredTaskScope.open(
+					StructuredTaskScope.Joiner.awaitAllSuccessfulOrThrow(),
+					Deadline.timeout(Duration.ofSeconds(5))
+			)) {
+				var subtask = Deadline.fork(scope, () -> taskA.compute(Behavior.run(300)));
+				var subtasks = Deadline.fork(scope, () -> inner(taskB, taskC));
+
+				scope.join();
+
+				LOG.info(formatResults(subtask, subtasks));
+				return null;
+			}
+		}
+
+		String inner(Task task1, Task task2) throws InterruptedException {
+			// the inner scope's own timeout is longer than what's left of the outer deadline
+			try (var scope = StructuredTaskScope.open(
+					StructuredTaskScope.Joiner.awaitAllSuccessfulOrThrow(),
+					Deadline.timeout(Duration.ofSeconds(2))
+			)) {
+				var subtaskB = Deadline.fork(scope, () -> task1.compute(Behavior.run(100)));
+				var subtaskC = Deadline.fork(scope, () -> task2.compute(Behavior.run(1_000)));
+
+				scope.join();
+
+				return formatResults(subtaskB, subtaskC);
+			}
+		}
+
+	}
+
+
 	static class ObserveNoCancellation {
 
 		void main() throws InterruptedException {
@@ -101,6 +157,31 @@ class Interruption {
 	}
 
 
+	static class ObserveCooperativeCancellation {
+
+		void main() throws InterruptedException {
+			var taskA = new Task("A");
+			var taskB = new Task("B");
+			var taskC = new Task("C");
+
+			try (var scope = StructuredTaskScope.open()) {
+				var subtaskA = scope.fork(() -> taskA.compute(Behavior.run(100)));
+				var subtaskB = scope.fork(() -> taskB.compute(Behavior.fail(200)));
+				// runs on a platform thread and checks for interruption, so it's canceled right away
+				var subtaskC = CpuBound.fork(scope, () -> taskC.compute(Behavior.runBusyCooperatively(1_000)));
+
+				scope.join();
+
+				LOG.info(formatResults(subtaskA, subtaskB, subtaskC));
+			} catch (FailedException ex) {
+				LOG.error(formatStates(taskA, taskB, taskC));
+			}
+			LOG.info("Done");
+		}
+
+	}
+
+
 	static class JoinEarly {
 
 		void main() throws InterruptedException {
@@ -139,12 +220,16 @@ class Interruption {
 			var taskB = new Task("B");
 			var taskC = new Task("C");
 
-			try (var scope = StructuredTaskScope.open(
+			// flags task C, which keeps its carrier busy
+			CarrierMonitor.start(Duration.ofMillis(200), Duration.ofMillis(20));
+
+			try (var _ = InstrumentedThreadFactory.recordPinning();
+				 var scope = StructuredTaskScope.open(
 					StructuredTaskScope.Joiner.awaitAllSuccessfulOrThrow(),
 					config -> config
 							.withTimeout(Duration.ofMillis(500))
 							.withName("important scope 🚀")
-					// .withThreadFactory()
+							.withThreadFactory(InstrumentedThreadFactory.forScope("important scope 🚀"))
 			)) {
 				var subtaskA = scope.fork(() -> taskA.compute(Behavior.run(100)));
 				var subtaskB = scope.fork(() -> taskB.compute(Behavior.run(400)));
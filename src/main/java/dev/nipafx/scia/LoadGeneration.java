@@ -0,0 +1,41 @@
+package dev.nipafx.scia;
+
+import dev.nipafx.scia.load.LoadGenerator;
+import dev.nipafx.scia.load.Workload;
+import dev.nipafx.scia.task.SimulatedFailure;
+import dev.nipafx.scia.task.Task;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+class LoadGeneration {
+
+	private static final Logger LOG = LoggerFactory.getLogger(LoadGeneration.class);
+
+	/**
+	 * Runs the workload described in `workload.properties` and reports latency percentiles.
+	 */
+	static class FromSpec {
+
+		void main() throws InterruptedException, IOException {
+			// thousands of task state changes per second would drown the report (and skew it)
+			Configurator.setLevel(Task.class, Level.WARN);
+			// with many simulated failures, capturing their stack traces would dominate CPU time
+			SimulatedFailure.captureStackTraces(false);
+
+			Workload workload;
+			try (var spec = LoadGeneration.class.getResourceAsStream("/workload.properties")) {
+				workload = Workload.read(spec);
+			}
+			LOG.info("Generating load: {}", workload);
+			var report = new LoadGenerator(workload).run();
+			LOG.info("Report:\n{}", report.summary());
+			LOG.info("Response time distribution:\n{}", report.responseTimeDistribution());
+		}
+
+	}
+
+}
@@ -1,20 +1,24 @@
 package dev.nipafx.scia;
 
+import dev.nipafx.scia.misc.AsyncCache;
 import dev.nipafx.scia.misc.Items;
+import dev.nipafx.scia.misc.Scopes;
 import dev.nipafx.scia.misc.Timeout;
+import dev.nipafx.scia.observe.SampledLogger.Sampling;
+import dev.nipafx.scia.pipeline.Pipeline;
 import dev.nipafx.scia.queue.DroppingMessageQueue;
 import dev.nipafx.scia.queue.InterruptableConsumer;
 import dev.nipafx.scia.queue.InterruptableSupplier;
 import dev.nipafx.scia.queue.MessageQueue;
 import dev.nipafx.scia.queue.MultiplexingQueue;
-import io.github.resilience4j.retry.Retry;
-import io.github.resilience4j.retry.RetryConfig;
+import dev.nipafx.scia.resilience.Retrier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.StructuredTaskScope;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.random.RandomGenerator;
@@ -23,12 +27,7 @@ class Reactive {
 
 	private static final Logger LOG = LoggerFactory.getLogger(Backpressure.class);
 
-	private static final Retry RETRIER = Retry.of(
-			"retrier",
-			RetryConfig.custom()
-					.maxAttempts(3)
-					.intervalFunction(attempt -> (long) Math.pow(2, attempt) * 10)
-					.build());
+	private static final Retrier RETRIER = new Retrier(3, Duration.ofMillis(10), Duration.ofMillis(500), 0.2);
 
 
 	static class Example4 {
@@ -55,7 +54,8 @@ class Reactive {
 		void main() throws InterruptedException {
 			var events = new DroppingMessageQueue<String>(20);
 			try (var scope = StructuredTaskScope.open()) {
-				scope.fork(() -> Items.produce(10, events));
+				// ~100 items per second are too many to log each of them
+				scope.fork(() -> Items.produce(10, events, Sampling.oneIn(10)));
 				scope.fork(() -> consume(events));
 
 				scope.join();
@@ -63,28 +63,53 @@ class Reactive {
 		}
 
 		private static Void consume(MessageQueue<String> events) throws InterruptedException {
-			var window = new ArrayList<String>();
-			while (true) {
-				var item = events.get();
-				if (item.startsWith("Item"))
-					window.add(item);
-
-				if (window.size() == 5) {
-					try {
-						RETRIER.executeCallable(
-								() -> {
-									Timeout.runnable(() -> writeBatch(window), Duration.ofMillis(100));
-									return null;
-								});
-					} catch (Exception ex) {
-						// thrown if all retries failed
-						LOG.error("! Write of batch {} abandoned", window);
+			// each batch is written (and retried) in its own subtask, so this loop can keep consuming events -
+			// but only up to four at a time, so a slow database still pushes back (like `parallel(4)` does below)
+			var writePermits = new Semaphore(4);
+			try (var writes = StructuredTaskScope.open(StructuredTaskScope.Joiner.awaitAll())) {
+				try {
+					var window = new ArrayList<String>();
+					while (true) {
+						var item = events.get();
+						if (item.startsWith("Item"))
+							window.add(item);
+
+						if (window.size() == 5) {
+							var batch = List.copyOf(window);
+							writePermits.acquire();
+							writes.fork(() -> {
+								try {
+									return writeBatchWithRetries(batch);
+								} finally {
+									writePermits.release();
+								}
+							});
+							window.clear();
+						}
 					}
-					window.clear();
+				} catch (InterruptedException ex) {
+					// closing the scope cancels pending writes
+					Scopes.abandon(writes);
+					throw ex;
 				}
 			}
 		}
 
+		private static Void writeBatchWithRetries(List<String> batch) throws InterruptedException {
+			try {
+				return RETRIER.call(() -> {
+					Timeout.runnable(() -> writeBatch(batch), Duration.ofMillis(100));
+					return null;
+				});
+			} catch (InterruptedException ex) {
+				throw ex;
+			} catch (Exception ex) {
+				// thrown if all retries failed
+				LOG.error("! Write of batch {} abandoned", batch);
+				return null;
+			}
+		}
+
 		private static void writeBatch(List<?> items) throws InterruptedException {
 			LOG.info("↘ Writing batch: {}", items);
 			try {
@@ -99,6 +124,30 @@ class Reactive {
 	}
 
 
+	static class Example4Pipeline {
+
+		/// Like `Example4`, but written with `Pipeline`:
+		/// filtering is fused into the stage that takes events from the queue
+		/// and up to four batches are written concurrently.
+		void main() throws InterruptedException {
+			var events = new DroppingMessageQueue<String>(20);
+			try (var scope = StructuredTaskScope.open()) {
+				// ~100 items per second are too many to log each of them
+				scope.fork(() -> Items.produce(10, events, Sampling.oneIn(10)));
+				scope.fork(() -> Pipeline
+						.from(events)
+						.filter(item -> item.startsWith("Item"))
+						.window(5, Duration.ofMillis(500))
+						.parallel(4)
+						.run(Example4::writeBatchWithRetries));
+
+				scope.join();
+			}
+		}
+
+	}
+
+
 	static class Example5 {
 
 		/// ```java
@@ -121,7 +170,7 @@ class Reactive {
 		///
 		/// PRODUCER:
 		/// * fetch data from network (with timeouts, retries, and backoff)
-		/// * update cache and $output if data changed
+		/// * update cache and $output if data changed (`MultiplexingQueue::distinctUntilChanged`)
 		/// * repeat every 30 seconds
 		///
 		/// CONSUMER:
@@ -130,7 +179,7 @@ class Reactive {
 		///   (if that was successful at least once)
 		/// * receive updated data when available
 		void main() throws InterruptedException {
-			var data = new MultiplexingQueue<>("Initial Item");
+			var data = MultiplexingQueue.distinctUntilChanged("Initial Item");
 
 			try (var scope = StructuredTaskScope.open()) {
 				scope.fork(() -> produceFromNetwork(data));
@@ -162,7 +211,7 @@ class Reactive {
 		private static Void produceFromNetwork(InterruptableConsumer<String> data) throws Exception {
 			while (true) {
 				try {
-					RETRIER.executeCallable(() -> {
+					RETRIER.call(() -> {
 						Timeout.runnable(
 								() -> data.accept(networkCall()),
 								Duration.ofMillis(100));
@@ -195,4 +244,45 @@ class Reactive {
 
 	}
 
+
+	static class Example5Cached {
+
+		/// Like `Example5` but with a cache instead of a producer loop:
+		/// * the cache is served by a subtask that forks network calls (with timeouts and retries)
+		/// * concurrent misses share one network call
+		/// * values are refreshed after 80% of their 2 seconds time to live
+		/// * if a refresh fails, the stale value is served
+		void main() throws InterruptedException {
+			var cache = new AsyncCache<String, String>(
+					_ -> RETRIER.call(() -> Timeout.callable(Example5::networkCall, Duration.ofMillis(100))),
+					100,
+					_ -> Duration.ofSeconds(2),
+					0.8);
+
+			try (var scope = StructuredTaskScope.open()) {
+				scope.fork(cache::serve);
+				scope.fork(() -> consumeFromCache(cache));
+				scope.fork(() -> consumeFromCache(cache));
+
+				Thread.sleep(1_000);
+				scope.fork(() -> consumeFromCache(cache));
+
+				scope.join();
+			}
+		}
+
+		private static final AtomicInteger CONSUMER_COUNT = new AtomicInteger();
+
+		private static Void consumeFromCache(AsyncCache<String, String> cache) throws Exception {
+			var consumerName = "Consumer #" + CONSUMER_COUNT.getAndIncrement();
+			LOG.info("> {} created", consumerName);
+
+			while (true) {
+				LOG.info("↘ {}: {}", consumerName, cache.get("data"));
+				Thread.sleep(500);
+			}
+		}
+
+	}
+
 }
@@ -0,0 +1,103 @@
+package dev.nipafx.scia;
+
+import dev.nipafx.scia.misc.DivideAndConquer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.LongStream;
+
+class Recursion {
+
+	private static final Logger LOG = LoggerFactory.getLogger(Recursion.class);
+
+
+	/**
+	 * A rough comparison (not a rigorous benchmark - use JMH for that) of summing an array
+	 * sequentially, with a parallel stream, with a fork/join task, and with `DivideAndConquer`.
+	 */
+	static class SumArray {
+
+		private static final int SIZE = 5_000_000;
+		private static final int THRESHOLD = 10_000;
+		private static final int WARMUP_ROUNDS = 5;
+		private static final int MEASURED_ROUNDS = 10;
+
+		void main() throws Exception {
+			var numbers = LongStream.range(0, SIZE).toArray();
+			var cores = Runtime.getRuntime().availableProcessors();
+			var divideAndConquer = new DivideAndConquer<Range, Long>(
+					range -> range.size() <= THRESHOLD,
+					Range::sum,
+					Range::halves,
+					sums -> sums.get(0) + sums.get(1),
+					4 * cores);
+
+			measure("sequential", () -> new Range(numbers, 0, SIZE).sum());
+			measure("parallel stream", () -> Arrays.stream(numbers).parallel().sum());
+			measure("fork/join", () -> ForkJoinPool.commonPool().invoke(new SumTask(new Range(numbers, 0, SIZE))));
+			measure("divide and conquer", () -> divideAndConquer.solve(new Range(numbers, 0, SIZE)));
+		}
+
+		private static void measure(String label, Callable<Long> sum) throws Exception {
+			for (int i = 0; i < WARMUP_ROUNDS; i++)
+				sum.call();
+			var times = new long[MEASURED_ROUNDS];
+			var result = 0L;
+			for (int i = 0; i < MEASURED_ROUNDS; i++) {
+				var start = System.nanoTime();
+				result = sum.call();
+				times[i] = System.nanoTime() - start;
+			}
+			Arrays.sort(times);
+			LOG.info("{}: sum {} in {}µs (median of {})",
+					label, result, times[MEASURED_ROUNDS / 2] / 1_000, MEASURED_ROUNDS);
+		}
+
+	}
+
+	record Range(long[] numbers, int from, int to) {
+
+		int size() {
+			return to - from;
+		}
+
+		long sum() {
+			var sum = 0L;
+			for (int i = from; i < to; i++)
+				sum += numbers[i];
+			return sum;
+		}
+
+		List<Range> halves() {
+			var middle = (from + to) >>> 1;
+			return List.of(new Range(numbers, from, middle), new Range(numbers, middle, to));
+		}
+
+	}
+
+	private static class SumTask extends RecursiveTask<Long> {
+
+		private final Range range;
+
+		SumTask(Range range) {
+			this.range = range;
+		}
+
+		@Override
+		protected Long compute() {
+			if (range.size() <= SumArray.THRESHOLD)
+				return range.sum();
+			var halves = range.halves();
+			var left = new SumTask(halves.get(0));
+			left.fork();
+			return new SumTask(halves.get(1)).compute() + left.join();
+		}
+
+	}
+
+}
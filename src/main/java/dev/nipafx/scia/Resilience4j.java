@@ -1,5 +1,9 @@
 package dev.nipafx.scia;
 
+import dev.nipafx.scia.resilience.AdaptiveLimiter;
+import dev.nipafx.scia.resilience.Bulkhead;
+import dev.nipafx.scia.resilience.KeyedCircuitBreaker;
+import dev.nipafx.scia.resilience.SchedulingRateLimiter;
 import dev.nipafx.scia.task.Behavior;
 import dev.nipafx.scia.task.Task;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
@@ -16,6 +20,8 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.StructuredTaskScope;
 import java.util.concurrent.StructuredTaskScope.FailedException;
 import java.util.concurrent.StructuredTaskScope.Subtask;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static dev.nipafx.scia.misc.Errors.asException;
 import static dev.nipafx.scia.task.Task.formatResults;
@@ -76,6 +82,48 @@ class Resilience4j {
 	}
 
 
+	static class KeyedCircuit {
+
+		void main() throws InterruptedException {
+			var taskA = new Task("A");
+			var taskB = new Task("B");
+			var taskC = new Task("C");
+			var taskD = new Task("D");
+			var taskE = new Task("E");
+
+			// wait for all tasks, so one shard's failures don't cancel the other shard's calls
+			try (var scope = StructuredTaskScope.open(StructuredTaskScope.Joiner.<String>awaitAll())) {
+				var subtaskA = forkToBreaker(scope, "shard-1", () -> taskA.computeOrRollBack(Behavior.fail(100)));
+				var subtaskB = forkToBreaker(scope, "shard-1", () -> taskB.computeOrRollBack(Behavior.fail(200)));
+				var subtaskC = forkToBreaker(scope, "shard-2", () -> taskC.computeOrRollBack(Behavior.run(100)));
+
+				Thread.sleep(300);
+
+				// the breaker for shard 1 is open, so D isn't even forked
+				try {
+					forkToBreaker(scope, "shard-1", () -> taskD.computeOrRollBack(Behavior.run(100)));
+				} catch (KeyedCircuitBreaker.OpenException ex) {
+					LOG.error("Task D rejected: {}", ex.getMessage());
+				}
+				var subtaskE = forkToBreaker(scope, "shard-2", () -> taskE.computeOrRollBack(Behavior.run(100)));
+
+				scope.join();
+
+				LOG.info(formatResults(subtaskA, subtaskB, subtaskC, subtaskE));
+			}
+			LOG.info("Done");
+		}
+
+		private static final KeyedCircuitBreaker CIRCUIT_BREAKERS = new KeyedCircuitBreaker(
+				2, 2, 0.5f, Duration.ofSeconds(1), Duration.ofMinutes(1));
+
+		private static <T> Subtask<T> forkToBreaker(StructuredTaskScope<T, ?> scope, String key, Callable<T> task) {
+			return CIRCUIT_BREAKERS.fork(scope, key, task);
+		}
+
+	}
+
+
 	static class Rate {
 
 		void main() throws InterruptedException {
@@ -118,6 +166,71 @@ class Resilience4j {
 	}
 
 
+	static class ScheduledRate {
+
+		void main() throws InterruptedException {
+			var taskA = new Task("A");
+			var taskB = new Task("B");
+			var taskC = new Task("C");
+
+			try (var scope = StructuredTaskScope.open()) {
+				// the subtasks are only forked when their slot comes up
+				var subtaskA = forkToLimiter(scope, () -> taskA.computeOrRollBack(Behavior.run(100)));
+				var subtaskB = forkToLimiter(scope, () -> taskB.computeOrRollBack(Behavior.fail(600)));
+				var subtaskC = forkToLimiter(scope, () -> taskC.computeOrRollBack(Behavior.run(300)));
+
+				scope.join();
+
+				LOG.info(formatResults(subtaskA, subtaskB, subtaskC));
+			} catch (FailedException ex) {
+				LOG.error(formatStates(taskA, taskB, taskC));
+			}
+			LOG.info("Done");
+		}
+
+		private static final SchedulingRateLimiter RATE_LIMITER = new SchedulingRateLimiter(1, Duration.ofMillis(500));
+
+		private static <T> Subtask<T> forkToLimiter(StructuredTaskScope<T, ?> scope, Callable<T> task)
+				throws InterruptedException {
+			return RATE_LIMITER.fork(scope, task);
+		}
+
+	}
+
+
+	static class Adaptive {
+
+		void main() throws InterruptedException {
+			var tasks = IntStream
+					.range(0, 20)
+					.mapToObj(i -> new Task(Integer.toString(i)))
+					.toArray(Task[]::new);
+
+			// wait for all tasks, so the limiter sees successes as well as failures
+			try (var scope = StructuredTaskScope.open(StructuredTaskScope.Joiner.<String>awaitAll())) {
+				var subtasks = Stream
+						.of(tasks)
+						.map(task -> forkToAdaptiveLimiter(scope, () -> task.computeOrRollBack(Behavior.runOrFail(100, 0.1f))))
+						.toArray(Subtask[]::new);
+
+				scope.join();
+
+				LOG.info(formatResults(subtasks));
+			}
+			LOG.info("Done with limit {}", LIMITER.limit());
+		}
+
+		private static final AdaptiveLimiter LIMITER = new AdaptiveLimiter(
+				AdaptiveLimiter.Algorithm.aimd(Duration.ofMillis(150), 0.5),
+				4, 1, 20);
+
+		private static <T> Subtask<T> forkToAdaptiveLimiter(StructuredTaskScope<T, ?> scope, Callable<T> task) {
+			return scope.fork(() -> LIMITER.call(task));
+		}
+
+	}
+
+
 	static class Retries {
 
 		void main() throws InterruptedException {
@@ -159,4 +272,37 @@ class Resilience4j {
 
 	}
 
+
+	static class Bulkheads {
+
+		void main() throws InterruptedException {
+			var taskA = new Task("A");
+			var taskB = new Task("B");
+			var taskC = new Task("C");
+			var taskD = new Task("D");
+
+			try (var scope = StructuredTaskScope.open()) {
+				var subtaskA = forkToBulkhead(scope, "database", () -> taskA.computeOrRollBack(Behavior.run(100)));
+				var subtaskB = forkToBulkhead(scope, "database", () -> taskB.computeOrRollBack(Behavior.run(200)));
+				var subtaskC = forkToBulkhead(scope, "database", () -> taskC.computeOrRollBack(Behavior.run(300)));
+				// different partition, so it's not held up by the database calls
+				var subtaskD = forkToBulkhead(scope, "network", () -> taskD.computeOrRollBack(Behavior.run(100)));
+
+				scope.join();
+
+				LOG.info(formatResults(subtaskA, subtaskB, subtaskC, subtaskD));
+			} catch (FailedException ex) {
+				LOG.error(formatStates(taskA, taskB, taskC, taskD));
+			}
+			LOG.info("Done");
+		}
+
+		private static final Bulkhead BULKHEAD = new Bulkhead("bulkhead", 2, Duration.ofMillis(150));
+
+		private static <T> Subtask<T> forkToBulkhead(StructuredTaskScope<T, ?> scope, String partition, Callable<T> task) {
+			return scope.fork(() -> BULKHEAD.call(partition, task));
+		}
+
+	}
+
 }
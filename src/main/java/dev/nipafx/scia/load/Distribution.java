@@ -0,0 +1,81 @@
+package dev.nipafx.scia.load;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * A distribution of task runtimes (in milliseconds).
+ */
+public sealed interface Distribution {
+
+	int sampleInMs(RandomGenerator random);
+
+	static Distribution fixed(int runtimeInMs) {
+		return new Fixed(runtimeInMs);
+	}
+
+	/**
+	 * Most runtimes are close to the median, some are a few times longer - typical for service calls.
+	 */
+	static Distribution logNormal(int medianInMs, double sigma) {
+		return new LogNormal(medianInMs, sigma);
+	}
+
+	/**
+	 * Runtimes are at least {@code minimumInMs} with a heavy tail that gets heavier as {@code shape} decreases.
+	 */
+	static Distribution pareto(int minimumInMs, double shape) {
+		return new Pareto(minimumInMs, shape);
+	}
+
+	/**
+	 * Parses {@code fixed(ms)}, {@code lognormal(medianMs, sigma)}, and {@code pareto(minimumMs, shape)}.
+	 */
+	static Distribution parse(String spec) {
+		var trimmed = spec.strip();
+		var open = trimmed.indexOf('(');
+		if (open < 0 || !trimmed.endsWith(")"))
+			throw new IllegalArgumentException("Unknown distribution: " + spec);
+		var name = trimmed.substring(0, open).strip();
+		var arguments = trimmed.substring(open + 1, trimmed.length() - 1).split(",");
+		try {
+			return switch (name) {
+				case "fixed" -> fixed(Integer.parseInt(arguments[0].strip()));
+				case "lognormal" -> logNormal(Integer.parseInt(arguments[0].strip()), Double.parseDouble(arguments[1].strip()));
+				case "pareto" -> pareto(Integer.parseInt(arguments[0].strip()), Double.parseDouble(arguments[1].strip()));
+				default -> throw new IllegalArgumentException("Unknown distribution: " + spec);
+			};
+		} catch (NumberFormatException | ArrayIndexOutOfBoundsException ex) {
+			throw new IllegalArgumentException("Malformed distribution: " + spec, ex);
+		}
+	}
+
+	record Fixed(int runtimeInMs) implements Distribution {
+
+		@Override
+		public int sampleInMs(RandomGenerator random) {
+			return runtimeInMs;
+		}
+
+	}
+
+	record LogNormal(int medianInMs, double sigma) implements Distribution {
+
+		@Override
+		public int sampleInMs(RandomGenerator random) {
+			return (int) Math.round(medianInMs * Math.exp(sigma * random.nextGaussian()));
+		}
+
+	}
+
+	record Pareto(int minimumInMs, double shape) implements Distribution {
+
+		@Override
+		public int sampleInMs(RandomGenerator random) {
+			// inverse transform sampling - `1 - nextDouble()` is in (0, 1]
+			var sample = minimumInMs / Math.pow(1 - random.nextDouble(), 1 / shape);
+			return (int) Math.min(Math.round(sample), Integer.MAX_VALUE);
+		}
+
+	}
+
+}
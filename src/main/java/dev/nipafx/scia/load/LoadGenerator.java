@@ -0,0 +1,158 @@
+package dev.nipafx.scia.load;
+
+import dev.nipafx.scia.task.Behavior;
+import dev.nipafx.scia.task.Task;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.StructuredTaskScope.Joiner;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Generates load according to a {@link Workload} by issuing requests open-loop, i.e. on a fixed schedule
+ * that doesn't wait for earlier requests to complete.
+ *
+ * <p>Each request's response time is measured from when it was <em>supposed</em> to start, not from when it
+ * actually started. That way, stalls of the generator or the system under test (e.g. while all carriers are
+ * busy) show up in the percentiles instead of silently delaying (and thus omitting) the requests that would
+ * have observed them - this is the correction for <em>coordinated omission</em>. The uncorrected service time
+ * is recorded as well, so the two can be compared.
+ */
+public class LoadGenerator {
+
+	// track up to an hour with three significant digits
+	private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+	private static final int SIGNIFICANT_DIGITS = 3;
+
+	private final Workload workload;
+
+	public LoadGenerator(Workload workload) {
+		this.workload = workload;
+	}
+
+	/**
+	 * Issues requests for the workload's duration and waits for all of them to complete.
+	 */
+	public Report run() throws InterruptedException {
+		var responseTimes = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+		var serviceTimes = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+		var failedRequests = new LongAdder();
+		var failedTasks = new LongAdder();
+
+		var intervalInNanos = TimeUnit.SECONDS.toNanos(1) / workload.requestsPerSecond();
+		var requestCount = workload.duration().toNanos() / intervalInNanos;
+		var start = System.nanoTime();
+		try (var requests = StructuredTaskScope.open(Joiner.<Void> awaitAll())) {
+			for (long request = 0; request < requestCount; request++) {
+				var intendedStart = start + request * intervalInNanos;
+				// if the generator falls behind, it catches up by issuing late requests immediately
+				var delay = intendedStart - System.nanoTime();
+				if (delay > 0)
+					Thread.sleep(Duration.ofNanos(delay));
+
+				var id = request;
+				requests.fork(() -> {
+					var actualStart = System.nanoTime();
+					try {
+						runScope("R" + id, workload.depth(), failedTasks);
+					} catch (Exception ex) {
+						if (ex instanceof InterruptedException)
+							throw ex;
+						// whether a task's failure fails the request depends on the joiner
+						failedRequests.increment();
+					} finally {
+						var end = System.nanoTime();
+						responseTimes.recordValue(toMicros(end - intendedStart));
+						serviceTimes.recordValue(toMicros(end - actualStart));
+					}
+					return null;
+				});
+			}
+			requests.join();
+		}
+		var elapsed = Duration.ofNanos(System.nanoTime() - start);
+		return new Report(
+				workload, elapsed, requestCount, failedRequests.sum(), failedTasks.sum(), responseTimes, serviceTimes);
+	}
+
+	private Void runScope(String name, int depth, LongAdder failedTasks) throws InterruptedException {
+		try (var scope = StructuredTaskScope.open(workload.joiner().<Object> create())) {
+			for (int i = 0; i < workload.tasksPerScope(); i++) {
+				var childName = name + "." + i;
+				if (depth > 1)
+					scope.fork(() -> runScope(childName, depth - 1, failedTasks));
+				else {
+					var runtime = workload.latency().sampleInMs(ThreadLocalRandom.current());
+					var behavior = Behavior.runOrFail(runtime, workload.failureRate());
+					scope.fork(() -> {
+						// counted here, because depending on the joiner, the failure may not propagate
+						try {
+							return new Task(childName).compute(behavior);
+						} catch (Exception ex) {
+							if (!(ex instanceof InterruptedException))
+								failedTasks.increment();
+							throw ex;
+						}
+					});
+				}
+			}
+			scope.join();
+		}
+		return null;
+	}
+
+	private static long toMicros(long nanos) {
+		return Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_TRACKABLE_MICROS);
+	}
+
+	public record Report(
+			Workload workload, Duration elapsed, long requests, long failedRequests, long failedTasks,
+			Histogram responseTimes, Histogram serviceTimes) {
+
+		/**
+		 * @return a summary with response and service time percentiles (in milliseconds)
+		 */
+		public String summary() {
+			return """
+					%,d requests in %,dms (%,.1f/s, target %,d/s), %,d failed (%,d failed tasks)
+					%s
+					%s"""
+					.formatted(
+							requests, elapsed.toMillis(), requests * 1000.0 / elapsed.toMillis(),
+							workload.requestsPerSecond(), failedRequests, failedTasks,
+							percentiles("response time (corrected)", responseTimes),
+							percentiles("service time (uncorrected)", serviceTimes));
+		}
+
+		private static String percentiles(String label, Histogram histogram) {
+			return "%-27s p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f p99.99=%.1f max=%.1f mean=%.1f".formatted(
+					label + ":",
+					histogram.getValueAtPercentile(50) / 1000.0,
+					histogram.getValueAtPercentile(90) / 1000.0,
+					histogram.getValueAtPercentile(99) / 1000.0,
+					histogram.getValueAtPercentile(99.9) / 1000.0,
+					histogram.getValueAtPercentile(99.99) / 1000.0,
+					histogram.getMaxValue() / 1000.0,
+					histogram.getMean() / 1000.0);
+		}
+
+		/**
+		 * @return the full HDR percentile distribution of response times (in milliseconds)
+		 */
+		public String responseTimeDistribution() {
+			var out = new ByteArrayOutputStream();
+			responseTimes.outputPercentileDistribution(new PrintStream(out, true, UTF_8), 1000.0);
+			return out.toString(UTF_8);
+		}
+
+	}
+
+}
@@ -0,0 +1,74 @@
+package dev.nipafx.scia.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.concurrent.StructuredTaskScope.Joiner;
+
+/**
+ * Describes the load to generate: how many requests to issue per second and for how long,
+ * and what each request does - it opens a scope with the given joiner that forks {@code tasksPerScope}
+ * subtasks, which open nested scopes until {@code depth} is reached, where the leaf tasks run for
+ * a runtime sampled from {@code latency} and fail with probability {@code failureRate}.
+ */
+public record Workload(
+		int requestsPerSecond, Duration duration,
+		int tasksPerScope, int depth, JoinerType joiner,
+		Distribution latency, float failureRate) {
+
+	public Workload {
+		if (requestsPerSecond <= 0)
+			throw new IllegalArgumentException("Request rate must be positive");
+		if (tasksPerScope <= 0 || depth <= 0)
+			throw new IllegalArgumentException("Tasks per scope and depth must be positive");
+		if (failureRate < 0 || failureRate > 1)
+			throw new IllegalArgumentException("Failure rate must be in [0, 1]");
+	}
+
+	/**
+	 * Reads a workload from a properties file like this one:
+	 *
+	 * <pre>
+	 * requestsPerSecond = 200
+	 * duration = PT10S
+	 * tasksPerScope = 3
+	 * depth = 2
+	 * joiner = AWAIT_ALL_SUCCESSFUL_OR_THROW
+	 * latency = lognormal(20, 0.5)
+	 * failureRate = 0.01
+	 * </pre>
+	 */
+	public static Workload read(InputStream properties) {
+		var spec = new Properties();
+		try {
+			spec.load(properties);
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		return new Workload(
+				Integer.parseInt(spec.getProperty("requestsPerSecond", "100").strip()),
+				Duration.parse(spec.getProperty("duration", "PT10S").strip()),
+				Integer.parseInt(spec.getProperty("tasksPerScope", "3").strip()),
+				Integer.parseInt(spec.getProperty("depth", "1").strip()),
+				JoinerType.valueOf(spec.getProperty("joiner", "AWAIT_ALL_SUCCESSFUL_OR_THROW").strip()),
+				Distribution.parse(spec.getProperty("latency", "fixed(10)")),
+				Float.parseFloat(spec.getProperty("failureRate", "0").strip()));
+	}
+
+	public enum JoinerType {
+
+		AWAIT_ALL, AWAIT_ALL_SUCCESSFUL_OR_THROW, ANY_SUCCESSFUL_RESULT_OR_THROW;
+
+		<T> Joiner<T, ?> create() {
+			return switch (this) {
+				case AWAIT_ALL -> Joiner.awaitAll();
+				case AWAIT_ALL_SUCCESSFUL_OR_THROW -> Joiner.awaitAllSuccessfulOrThrow();
+				case ANY_SUCCESSFUL_RESULT_OR_THROW -> Joiner.anySuccessfulResultOrThrow();
+			};
+		}
+
+	}
+
+}
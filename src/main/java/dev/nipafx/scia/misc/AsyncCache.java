@@ -0,0 +1,177 @@
+package dev.nipafx.scia.misc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A bounded cache that loads values by fetching them in subtasks.
+ *
+ * <ul>
+ *     <li><em>single flight:</em> concurrent misses for the same key wait for the same fetch</li>
+ *     <li><em>refresh ahead:</em> a value that is about to expire is refetched in the background
+ *         while the current value is still served</li>
+ *     <li><em>stale while revalidate:</em> if fetching an expired value fails, the stale value is served</li>
+ *     <li><em>bounded:</em> the least-recently used entries are evicted beyond the capacity</li>
+ * </ul>
+ *
+ * <p>Fetches are forked into a scope that is owned by {@link #serve()}, which needs to be forked into
+ * a long-lived scope itself. When that scope shuts down, {@code serve()} is interrupted and its scope
+ * cancels all pending fetches. As long as {@code serve()} doesn't run, fetches don't make progress.
+ */
+public class AsyncCache<K, V> {
+
+	private static final Logger LOG = LoggerFactory.getLogger(AsyncCache.class);
+
+	private final Fetcher<? super K, ? extends V> fetcher;
+	private final Function<? super K, Duration> timeToLive;
+	private final double refreshAheadRatio;
+
+	private final ReentrantLock lock;
+	// guarded by `lock`
+	private final Map<K, Entry<V>> entries;
+	private final BlockingQueue<Fetch<K, V>> fetches;
+
+	/**
+	 * @param timeToLive how long the value for a given key is valid
+	 * @param refreshAheadRatio after which share of its time to live a value is refreshed ahead of expiry
+	 */
+	public AsyncCache(
+			Fetcher<? super K, ? extends V> fetcher, int capacity,
+			Function<? super K, Duration> timeToLive, double refreshAheadRatio) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Capacity must be positive");
+		if (refreshAheadRatio <= 0 || refreshAheadRatio > 1)
+			throw new IllegalArgumentException("Refresh-ahead ratio must be in (0, 1]");
+		this.fetcher = fetcher;
+		this.timeToLive = timeToLive;
+		this.refreshAheadRatio = refreshAheadRatio;
+
+		this.lock = new ReentrantLock();
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+				return size() > capacity;
+			}
+		};
+		this.fetches = new LinkedBlockingQueue<>();
+	}
+
+	/**
+	 * Returns the cached value if it's fresh. Otherwise, waits for it to be fetched.
+	 *
+	 * @throws InterruptedException if the current thread was interrupted while waiting for the fetch
+	 * @throws ExecutionException if the fetch failed and there's no stale value to fall back to
+	 */
+	public V get(K key) throws InterruptedException, ExecutionException {
+		var entry = entryFor(key);
+		var loaded = entry.loaded;
+		var now = System.nanoTime();
+		if (loaded != null && now - loaded.expiresAt() < 0) {
+			if (now - loaded.refreshAt() >= 0)
+				fetch(key, entry);
+			return loaded.value();
+		}
+
+		try {
+			return fetch(key, entry).get();
+		} catch (ExecutionException ex) {
+			if (loaded == null)
+				throw ex;
+			LOG.warn("Fetching {} failed - serving stale value", key, ex.getCause());
+			return loaded.value();
+		}
+	}
+
+	private Entry<V> entryFor(K key) {
+		lock.lock();
+		try {
+			return entries.computeIfAbsent(key, _ -> new Entry<>());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private CompletableFuture<V> fetch(K key, Entry<V> entry) throws InterruptedException {
+		while (true) {
+			var inFlight = entry.inFlight.get();
+			if (inFlight != null)
+				return inFlight;
+
+			var fetch = new CompletableFuture<V>();
+			if (entry.inFlight.compareAndSet(null, fetch)) {
+				fetches.put(new Fetch<>(key, entry, fetch));
+				return fetch;
+			}
+		}
+	}
+
+	/**
+	 * Forks fetches until interrupted and then cancels the pending ones
+	 * (callers waiting for them get a {@link java.util.concurrent.CancellationException}).
+	 */
+	public Void serve() throws InterruptedException {
+		try (var scope = StructuredTaskScope.open(StructuredTaskScope.Joiner.awaitAll())) {
+			try {
+				while (true) {
+					var fetch = fetches.take();
+					scope.fork(() -> execute(fetch));
+				}
+			} finally {
+				Fetch<K, V> queued;
+				while ((queued = fetches.poll()) != null) {
+					queued.entry().inFlight.set(null);
+					queued.result().cancel(false);
+				}
+				// only reached when interrupted - closing the scope cancels pending fetches
+				Scopes.abandon(scope);
+			}
+		}
+	}
+
+	private void execute(Fetch<K, V> fetch) {
+		try {
+			V value = fetcher.fetch(fetch.key());
+			var ttl = timeToLive.apply(fetch.key()).toNanos();
+			var now = System.nanoTime();
+			fetch.entry().loaded = new Loaded<>(value, now + (long) (ttl * refreshAheadRatio), now + ttl);
+			fetch.entry().inFlight.set(null);
+			fetch.result().complete(value);
+		} catch (Throwable ex) {
+			// also on errors, so the fetch's callers aren't left waiting and later lookups fetch again
+			fetch.entry().inFlight.set(null);
+			fetch.result().completeExceptionally(ex);
+			if (ex instanceof Error error)
+				throw error;
+		}
+	}
+
+	public interface Fetcher<K, V> {
+
+		V fetch(K key) throws Exception;
+
+	}
+
+	private static final class Entry<V> {
+
+		private volatile Loaded<V> loaded;
+		private final AtomicReference<CompletableFuture<V>> inFlight = new AtomicReference<>();
+
+	}
+
+	private record Loaded<V>(V value, long refreshAt, long expiresAt) { }
+
+	private record Fetch<K, V>(K key, Entry<V> entry, CompletableFuture<V> result) { }
+
+}
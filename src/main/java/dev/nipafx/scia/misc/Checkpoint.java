@@ -0,0 +1,52 @@
+package dev.nipafx.scia.misc;
+
+import java.time.Duration;
+
+/**
+ * A cheap cancellation point for CPU-bound loops, which otherwise never notice that their scope was canceled
+ * (because they don't block, they never observe the interrupt) and never release their carrier.
+ *
+ * <p>Every {@link #check() check} tests the interrupt flag. Every {@value CLOCK_CHECK_INTERVAL}-th one also
+ * reads the clock to test the {@link Deadline#current() current deadline} and to
+ * {@link Thread#yield() yield} if {@code yieldInterval} passed since the last yield.
+ *
+ * <p>Create one instance per loop - it's not thread-safe.
+ */
+public final class Checkpoint {
+
+	private static final int CLOCK_CHECK_INTERVAL = 1024;
+
+	private final long yieldIntervalInNanos;
+	private long lastYield;
+	private int checks;
+
+	private Checkpoint(Duration yieldInterval) {
+		this.yieldIntervalInNanos = yieldInterval.toNanos();
+		this.lastYield = System.nanoTime();
+		this.checks = 0;
+	}
+
+	public static Checkpoint yieldingEvery(Duration yieldInterval) {
+		return new Checkpoint(yieldInterval);
+	}
+
+	/**
+	 * @throws InterruptedException if the current thread was interrupted
+	 * @throws Deadline.ExceededException if the current deadline passed
+	 */
+	public void check() throws InterruptedException, Deadline.ExceededException {
+		if (Thread.interrupted())
+			throw new InterruptedException();
+		if (++checks < CLOCK_CHECK_INTERVAL)
+			return;
+
+		checks = 0;
+		Deadline.checkNotExceeded();
+		var now = System.nanoTime();
+		if (now - lastYield >= yieldIntervalInNanos) {
+			lastYield = now;
+			Thread.yield();
+		}
+	}
+
+}
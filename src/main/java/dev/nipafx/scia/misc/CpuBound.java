@@ -0,0 +1,56 @@
+package dev.nipafx.scia.misc;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.StructuredTaskScope.FailedException;
+import java.util.concurrent.StructuredTaskScope.Subtask;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs CPU-bound work on platform threads, so it doesn't occupy the carriers of virtual threads,
+ * which keeps I/O-bound subtasks responsive.
+ *
+ * <p>Structured concurrency starts a new thread per subtask, so instead of a thread pool, there's a bound:
+ * No more platform threads run CPU-bound work than there are cores. Each piece of work is forked into
+ * a nested scope, so it's still owned by (and canceled with) the calling scope. To react to cancellation
+ * quickly, CPU-bound work should regularly pass a {@link Checkpoint}.
+ */
+public class CpuBound {
+
+	private static final Semaphore CORES = new Semaphore(Runtime.getRuntime().availableProcessors(), true);
+	private static final ThreadFactory PLATFORM_THREADS = Thread
+			.ofPlatform()
+			.name("cpu-bound-", 0)
+			.daemon()
+			.factory();
+
+	/**
+	 * Forks a (virtual) subtask that {@link #call(Callable) calls} the CPU-bound task on a platform thread.
+	 */
+	public static <T, U extends T> Subtask<U> fork(StructuredTaskScope<T, ?> scope, Callable<? extends U> task) {
+		return scope.fork(() -> call(task));
+	}
+
+	/**
+	 * Waits for a free core and then executes the task on a platform thread.
+	 *
+	 * @throws InterruptedException if the current thread was interrupted while waiting for a core or the result
+	 * @throws FailedException if the task threw an exception
+	 */
+	public static <T> T call(Callable<? extends T> task) throws InterruptedException, FailedException {
+		CORES.acquire();
+		try (var scope = StructuredTaskScope.open(
+				StructuredTaskScope.Joiner.<T>anySuccessfulResultOrThrow(),
+				config -> config
+						.withName("cpu-bound")
+						.withThreadFactory(PLATFORM_THREADS)
+		)) {
+			scope.fork(task);
+			return scope.join();
+		} finally {
+			CORES.release();
+		}
+	}
+
+}
@@ -0,0 +1,109 @@
+package dev.nipafx.scia.misc;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.StructuredTaskScope.Configuration;
+import java.util.concurrent.StructuredTaskScope.Subtask;
+import java.util.function.Function;
+
+/**
+ * A point in time by which work needs to be done, carried in a {@link ScopedValue}.
+ *
+ * <p>Because forked subtasks inherit scoped values, a deadline bound with {@link #within(Duration, ScopedValue.CallableOp)}
+ * is visible in all nested scopes. These can {@link #timeout(Duration) configure} their timeout, so it doesn't
+ * exceed the remaining budget, and {@link #fork(StructuredTaskScope, Callable) fork} subtasks only if there's
+ * budget left.
+ */
+public final class Deadline {
+
+	private static final ScopedValue<Deadline> CURRENT = ScopedValue.newInstance();
+
+	private final long deadlineInNanos;
+
+	private Deadline(long deadlineInNanos) {
+		this.deadlineInNanos = deadlineInNanos;
+	}
+
+	public static Optional<Deadline> current() {
+		return CURRENT.isBound() ? Optional.of(CURRENT.get()) : Optional.empty();
+	}
+
+	/**
+	 * Executes the operation with a deadline that is {@code budget} from now or the current deadline,
+	 * whichever comes first.
+	 */
+	public static <T, X extends Throwable> T within(Duration budget, ScopedValue.CallableOp<T, X> operation) throws X {
+		var deadline = System.nanoTime() + budget.toNanos();
+		if (CURRENT.isBound())
+			deadline = Math.min(deadline, CURRENT.get().deadlineInNanos);
+		return ScopedValue.where(CURRENT, new Deadline(deadline)).call(operation);
+	}
+
+	/**
+	 * @return the smaller of {@code own} and the budget remaining until the current deadline (if there is one)
+	 */
+	public static Duration budget(Duration own) {
+		if (!CURRENT.isBound())
+			return own;
+		var remaining = CURRENT.get().remaining();
+		return remaining.compareTo(own) < 0 ? remaining : own;
+	}
+
+	/**
+	 * Configures a scope's timeout as the {@link #budget(Duration) budget} for {@code own}.
+	 *
+	 * <p>Subtasks only see the deadline that's bound when the scope is opened, so to pass the scope's
+	 * (possibly shorter) deadline on to them, open it in {@link #within(Duration, ScopedValue.CallableOp)
+	 * within(own, ...)}.
+	 */
+	public static Function<Configuration, Configuration> timeout(Duration own) {
+		return config -> config.withTimeout(budget(own));
+	}
+
+	/**
+	 * @throws ExceededException if the current deadline already passed
+	 */
+	public static void checkNotExceeded() throws ExceededException {
+		if (CURRENT.isBound() && CURRENT.get().isExceeded())
+			throw new ExceededException();
+	}
+
+	/**
+	 * Forks the task into the scope unless the current deadline already passed.
+	 *
+	 * @throws ExceededException if the current deadline already passed (the task is not forked)
+	 */
+	public static <T, U extends T> Subtask<U> fork(StructuredTaskScope<T, ?> scope, Callable<? extends U> task)
+			throws ExceededException {
+		checkNotExceeded();
+		return scope.fork(task);
+	}
+
+	public Duration remaining() {
+		var remaining = deadlineInNanos - System.nanoTime();
+		return remaining > 0 ? Duration.ofNanos(remaining) : Duration.ZERO;
+	}
+
+	public boolean isExceeded() {
+		return deadlineInNanos - System.nanoTime() <= 0;
+	}
+
+	@Override
+	public String toString() {
+		return "Deadline in " + remaining();
+	}
+
+	/**
+	 * Thrown when work is rejected because its deadline already passed.
+	 */
+	public static final class ExceededException extends RuntimeException {
+
+		private ExceededException() {
+			super("The deadline passed");
+		}
+
+	}
+
+}
@@ -0,0 +1,124 @@
+package dev.nipafx.scia.misc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.StructuredTaskScope.FailedException;
+import java.util.concurrent.StructuredTaskScope.Subtask;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Solves a problem by recursively splitting it into parts, solving them in parallel, and combining the results.
+ *
+ * <p>Each split opens a nested scope, so the parts are owned by the part they were split from, which shows up
+ * in thread dumps, and a failure anywhere cancels the entire computation (parts that are solved inline stop
+ * at the next split once a forked sibling failed or the thread was interrupted). Problems that are small enough
+ * (as decided by {@code isLeaf}) are solved inline. Beyond that, the number of concurrently running subtasks
+ * is bounded: if all permits are taken, parts are solved inline instead of being forked (which also means
+ * that a part that waits for its parts never keeps them from running). Like in fork/join, the last part
+ * is always solved inline, so every split forks at most {@code parts - 1} subtasks.
+ */
+public class DivideAndConquer<P, R> {
+
+	private final Predicate<? super P> isLeaf;
+	private final Solver<? super P, ? extends R> solveLeaf;
+	private final Function<? super P, ? extends List<? extends P>> split;
+	private final Function<? super List<R>, ? extends R> combine;
+	private final Semaphore permits;
+
+	/**
+	 * @param isLeaf whether a problem is small enough to be solved directly
+	 * @param split splits a problem that isn't a leaf into (at least two) parts
+	 * @param combine combines the parts' results (in the order of the parts)
+	 * @param maxConcurrency how many forked subtasks may run at the same time
+	 */
+	public DivideAndConquer(
+			Predicate<? super P> isLeaf, Solver<? super P, ? extends R> solveLeaf,
+			Function<? super P, ? extends List<? extends P>> split, Function<? super List<R>, ? extends R> combine,
+			int maxConcurrency) {
+		if (maxConcurrency < 0)
+			throw new IllegalArgumentException("Maximum concurrency must not be negative");
+		this.isLeaf = isLeaf;
+		this.solveLeaf = solveLeaf;
+		this.split = split;
+		this.combine = combine;
+		this.permits = new Semaphore(maxConcurrency);
+	}
+
+	/**
+	 * @throws Exception the first exception thrown by {@code solveLeaf}, {@code split}, or {@code combine}
+	 * (as is, not wrapped in a {@link FailedException})
+	 */
+	public R solve(P problem) throws Exception {
+		if (isLeaf.test(problem))
+			return solveLeaf.solve(problem);
+
+		List<? extends P> parts = split.apply(problem);
+		@SuppressWarnings("unchecked")
+		var results = (R[]) new Object[parts.size()];
+		try (var scope = StructuredTaskScope.open(
+				StructuredTaskScope.Joiner.<R>awaitAllSuccessfulOrThrow(),
+				config -> config.withName("divide-and-conquer"))) {
+			// fork as many parts as permitted first, so they run while the rest is solved inline
+			var subtasks = new ArrayList<Subtask<R>>(parts.size());
+			for (int i = 0; i < parts.size(); i++) {
+				var part = parts.get(i);
+				var fork = i < parts.size() - 1 && permits.tryAcquire();
+				subtasks.add(fork ? scope.fork(() -> solveAndRelease(part)) : null);
+			}
+			for (int i = 0; i < parts.size(); i++) {
+				if (subtasks.get(i) != null)
+					continue;
+				// cancellation only interrupts forked subtasks, so inline parts need to check for it
+				if (Thread.interrupted()) {
+					Scopes.abandon(scope);
+					throw new InterruptedException();
+				}
+				// `join` throws right away if a forked part failed
+				if (anyFailed(subtasks))
+					break;
+				try {
+					results[i] = solve(parts.get(i));
+				} catch (Throwable ex) {
+					// like a forked part's failure, this cancels the other parts and is rethrown as is
+					Scopes.abandon(scope);
+					throw Errors.asException(ex);
+				}
+			}
+
+			scope.join();
+			for (int i = 0; i < parts.size(); i++)
+				if (subtasks.get(i) != null)
+					results[i] = subtasks.get(i).get();
+		} catch (FailedException ex) {
+			// nested scopes would otherwise wrap the exception once per level
+			throw Errors.asException(ex.getCause());
+		}
+		return combine.apply(Arrays.asList(results));
+	}
+
+	private static boolean anyFailed(List<? extends Subtask<?>> subtasks) {
+		for (var subtask : subtasks)
+			if (subtask != null && subtask.state() == Subtask.State.FAILED)
+				return true;
+		return false;
+	}
+
+	private R solveAndRelease(P part) throws Exception {
+		try {
+			return solve(part);
+		} finally {
+			permits.release();
+		}
+	}
+
+	public interface Solver<P, R> {
+
+		R solve(P problem) throws Exception;
+
+	}
+
+}
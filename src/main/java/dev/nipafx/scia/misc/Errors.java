@@ -2,10 +2,15 @@ package dev.nipafx.scia.misc;
 
 public class Errors {
 
-	public static <EX extends Exception> Exception asException(Throwable t) throws EX {
+	/**
+	 * Rethrows the given throwable as is - without wrapping it and even if it's a checked exception
+	 * the caller doesn't declare. The return type only exists, so callers can write {@code throw asException(t)}
+	 * to let the compiler know that this method doesn't return.
+	 */
+	public static <EX extends Throwable> Exception asException(Throwable t) throws EX {
 		@SuppressWarnings("unchecked")
-		var asException = (EX) t;
-		return asException;
+		var asEx = (EX) t;
+		throw asEx;
 	}
 
 }
@@ -0,0 +1,132 @@
+package dev.nipafx.scia.misc;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.StructuredTaskScope.Joiner;
+import java.util.concurrent.StructuredTaskScope.Subtask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs two or three tasks concurrently with as little allocation per fan-out as possible,
+ * for call sites that fan out at high rates.
+ *
+ * <ul>
+ *     <li>the last task runs inline on the calling thread, which saves a thread and a subtask</li>
+ *     <li>the joiner also tracks the inline task, so there's no extra object for that</li>
+ *     <li>results come back in one tuple instead of via a collection or stream of subtasks</li>
+ * </ul>
+ *
+ * <p>If a forked task fails, the scope cancels the other forked task and the joiner interrupts the inline task.
+ * If the inline task fails, the forked tasks are canceled. Either way, the first failure's exception is
+ * rethrown as is (see {@link Errors#asException(Throwable)}).
+ */
+public class Fanout {
+
+	public static <A, B> Pair<A, B> fork2(Callable<? extends A> taskA, Callable<? extends B> taskB) throws Exception {
+		var joiner = new CancelOnFailure();
+		try (var scope = StructuredTaskScope.open(joiner)) {
+			Subtask<A> subtaskA = scope.fork(taskA);
+			B resultB = callInline(scope, joiner, taskB);
+			scope.join();
+
+			throwIfFailed(subtaskA);
+			return new Pair<>(subtaskA.get(), resultB);
+		}
+	}
+
+	public static <A, B, C> Triple<A, B, C> fork3(
+			Callable<? extends A> taskA, Callable<? extends B> taskB, Callable<? extends C> taskC) throws Exception {
+		var joiner = new CancelOnFailure();
+		try (var scope = StructuredTaskScope.open(joiner)) {
+			Subtask<A> subtaskA = scope.fork(taskA);
+			Subtask<B> subtaskB = scope.fork(taskB);
+			C resultC = callInline(scope, joiner, taskC);
+			scope.join();
+
+			throwIfFailed(subtaskA);
+			throwIfFailed(subtaskB);
+			return new Triple<>(subtaskA.get(), subtaskB.get(), resultC);
+		}
+	}
+
+	/**
+	 * @return the task's result or {@code null} if it was interrupted because a forked task failed
+	 * 		(whose exception is then thrown after joining)
+	 */
+	private static <T> T callInline(StructuredTaskScope<?, ?> scope, CancelOnFailure joiner, Callable<? extends T> task)
+			throws Exception {
+		T result;
+		try {
+			result = task.call();
+		} catch (Throwable ex) {
+			if (joiner.finishInline())
+				return null;
+			Scopes.abandon(scope);
+			throw ex;
+		}
+		joiner.finishInline();
+		return result;
+	}
+
+	private static void throwIfFailed(Subtask<?> subtask) throws Exception {
+		if (subtask.state() == Subtask.State.FAILED)
+			throw Errors.asException(subtask.exception());
+	}
+
+	/**
+	 * Cancels the scope when a subtask fails and, if the owner still runs the inline task, interrupts it.
+	 * The state tracks the inline task, so it's created per scope (by the owner).
+	 */
+	private static final class CancelOnFailure extends AtomicInteger implements Joiner<Object, Void> {
+
+		private static final int INLINE = 0;
+		private static final int INTERRUPTING = 1;
+		private static final int INTERRUPTED = 2;
+		private static final int DONE = 3;
+
+		private final Thread owner;
+
+		private CancelOnFailure() {
+			super(INLINE);
+			this.owner = Thread.currentThread();
+		}
+
+		@Override
+		public boolean onComplete(Subtask<?> subtask) {
+			if (subtask.state() != Subtask.State.FAILED)
+				return false;
+			if (compareAndSet(INLINE, INTERRUPTING)) {
+				owner.interrupt();
+				set(INTERRUPTED);
+			}
+			return true;
+		}
+
+		/**
+		 * Called by the owner after the inline task returned or threw.
+		 *
+		 * @return whether the inline task was interrupted (in which case the interrupt flag is cleared)
+		 */
+		private boolean finishInline() {
+			if (compareAndSet(INLINE, DONE))
+				return false;
+			// the joiner is about to interrupt the owner or did so already
+			while (get() != INTERRUPTED)
+				Thread.onSpinWait();
+			// clear the flag, so `join` doesn't throw and the scope's failure is reported instead
+			Thread.interrupted();
+			return true;
+		}
+
+		@Override
+		public Void result() {
+			return null;
+		}
+
+	}
+
+	public record Pair<A, B>(A first, B second) { }
+
+	public record Triple<A, B, C>(A first, B second, C third) { }
+
+}
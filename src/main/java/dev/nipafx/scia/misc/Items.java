@@ -1,10 +1,12 @@
 package dev.nipafx.scia.misc;
 
+import dev.nipafx.scia.observe.SampledLogger.Sampling;
 import dev.nipafx.scia.queue.InterruptableConsumer;
 import dev.nipafx.scia.queue.InterruptableSupplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -12,15 +14,27 @@ public class Items {
 
 	private static final Logger LOG = LoggerFactory.getLogger(Items.class);
 
+	private static final Duration SUMMARY_INTERVAL = Duration.ofSeconds(10);
+
 	public static void produce(int delay, InterruptableConsumer<String> consumer) {
+		produce(delay, consumer, Sampling.all());
+	}
+
+	/**
+	 * @param sampling which of the produced (and published) items to log - the rest is summarized
+	 */
+	public static void produce(int delay, InterruptableConsumer<String> consumer, Sampling sampling) {
+		// one logger per producer, so producers don't compete for each other's samples
+		var producedLog = sampling.create(LOG, "items produced", SUMMARY_INTERVAL);
+		var publishedLog = sampling.create(LOG, "items published", SUMMARY_INTERVAL);
 		try {
 			var counter = new AtomicInteger(0);
 			while (true) {
 				Thread.sleep(delay);
 				var item = "Item #" + counter.getAndIncrement();
-				LOG.info("↑ {} produced", item);
+				producedLog.info("↑ {} produced", item);
 				consumer.accept(item);
-				LOG.info("↗ {} published", item);
+				publishedLog.info("↗ {} published", item);
 			}
 		} catch (InterruptedException ex) {
 			LOG.error("Producer interrupted", ex);
@@ -28,12 +42,21 @@ public class Items {
 	}
 
 	public static void consume(int delay, InterruptableSupplier<String> supplier) {
+		consume(delay, supplier, Sampling.all());
+	}
+
+	/**
+	 * @param sampling which of the received (and processed) items to log - the rest is summarized
+	 */
+	public static void consume(int delay, InterruptableSupplier<String> supplier, Sampling sampling) {
+		var receivedLog = sampling.create(LOG, "items received", SUMMARY_INTERVAL);
+		var processedLog = sampling.create(LOG, "items processed", SUMMARY_INTERVAL);
 		try {
 			while (true) {
 				var item = supplier.get();
-				LOG.info("↘ {} received", item);
+				receivedLog.info("↘ {} received", item);
 				Thread.sleep(delay);
-				LOG.info("↓ {} processed", item);
+				processedLog.info("↓ {} processed", item);
 			}
 		} catch (InterruptedException ex) {
 			LOG.error("Consumer interrupted", ex);
@@ -0,0 +1,29 @@
+package dev.nipafx.scia.misc;
+
+import java.util.concurrent.StructuredTaskScope;
+
+public class Scopes {
+
+	/**
+	 * Lets the owner abandon a scope without waiting for its subtasks, e.g. because the owner was interrupted
+	 * or failed: call this instead of {@code join()} and closing the scope then cancels the unfinished subtasks.
+	 * (Closing a scope that was never joined throws.)
+	 *
+	 * <p>This joins with the interrupt flag set, so {@code join} throws right away if it would have to wait.
+	 * If all subtasks are already done, though, {@code join} returns without consuming the flag - either way,
+	 * the flag is restored to what it was before the call.
+	 */
+	public static void abandon(StructuredTaskScope<?, ?> scope) {
+		var wasInterrupted = Thread.interrupted();
+		Thread.currentThread().interrupt();
+		try {
+			scope.join();
+		} catch (InterruptedException | StructuredTaskScope.FailedException | StructuredTaskScope.TimeoutException _) {
+			// the scope is abandoned, so its outcome doesn't matter
+		}
+		Thread.interrupted();
+		if (wasInterrupted)
+			Thread.currentThread().interrupt();
+	}
+
+}
@@ -6,42 +6,186 @@ import java.time.Duration;
 import java.util.concurrent.Callable;
 import java.util.concurrent.StructuredTaskScope;
 import java.util.concurrent.StructuredTaskScope.FailedException;
-import java.util.concurrent.StructuredTaskScope.TimeoutException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Guards calls with a timeout.
+ *
+ * <p>By default, the call runs on the current thread and a timer on the {@link WheelTimer#shared() shared wheel}
+ * interrupts it once the duration expired. That only works for calls that react to interruption but costs
+ * no more than arming and canceling a timer. The {@code ...InScope} variants fork the call into a
+ * {@link StructuredTaskScope} instead, which isolates the caller from calls that ignore interruption
+ * at the price of a thread and a scope per call.
+ *
+ * <p>The two families report failures differently: the {@code ...InScope} variants throw
+ * {@link StructuredTaskScope.TimeoutException} and wrap the call's exception in a {@link FailedException},
+ * whereas {@link #callable(Callable, Duration) callable} and {@link #runnable(InterruptableRunnable, Duration) runnable}
+ * throw {@link TimeoutException java.util.concurrent.TimeoutException} and let the call's exception through as is
+ * (the constructors of the scope's exceptions aren't public). When these two started running calls inline
+ * instead of in a scope, they switched to the latter contract, so callers had to update their catch clauses.
+ *
+ * <p>All variants respect the {@link Deadline#current() current deadline}: If it's closer than {@code duration},
+ * the call gets only the remaining budget and if it already passed, the call isn't even started (and a
+ * {@link Deadline.ExceededException} is thrown). All variants bind the resulting deadline while the call runs,
+ * so nested timeouts and scopes see it.
+ */
 public class Timeout {
 
 	/**
-	 * @throws InterruptedException if the current thread was interrupted while waiting for the result
+	 * Runs the callable on the current thread and interrupts it if it didn't complete within {@code duration}.
+	 *
+	 * @throws InterruptedException if the current thread was interrupted (by someone other than the timer)
 	 * @throws TimeoutException if no result was produced during {@code duration}
-	 * @throws FailedException if the callable threw an exception
+	 * @throws Exception if the callable threw an exception
+	 * @throws Deadline.ExceededException if the current deadline already passed
 	 */
-	public static <T> T callable(Callable<T> callable, Duration duration)
-			throws InterruptedException, TimeoutException, FailedException {
-		try (var scope = StructuredTaskScope.open(
-				StructuredTaskScope.Joiner.<T>anySuccessfulResultOrThrow(),
-				config -> config.withTimeout(duration)
-		)) {
-			scope.fork(callable);
-			return scope.join();
+	public static <T> T callable(Callable<T> callable, Duration duration) throws Exception {
+		Deadline.checkNotExceeded();
+		var budget = Deadline.budget(duration);
+		var alarm = new Alarm(budget);
+		T result;
+		try {
+			result = Deadline.within(duration, callable::call);
+		} catch (Exception ex) {
+			if (alarm.disarm())
+				throw timeoutException(budget, ex);
+			throw ex;
+		} catch (Error err) {
+			alarm.disarm();
+			throw err;
 		}
+		if (alarm.disarm())
+			throw timeoutException(budget, null);
+		return result;
 	}
 
 	/**
-	 * @throws InterruptedException if the current thread was interrupted while waiting for the result
-	 * @throws TimeoutException if no result was produced during {@code duration}
-	 * @throws FailedException if the callable threw an exception
+	 * Runs the runnable on the current thread and interrupts it if it didn't complete within {@code duration}.
+	 *
+	 * @throws InterruptedException if the current thread was interrupted (by someone other than the timer)
+	 * @throws TimeoutException if the runnable didn't complete during {@code duration}
+	 * @throws Deadline.ExceededException if the current deadline already passed
 	 */
 	public static void runnable(InterruptableRunnable runnable, Duration duration)
-			throws InterruptedException, TimeoutException, FailedException {
-		try (var scope = StructuredTaskScope.open(
-				StructuredTaskScope.Joiner.allSuccessfulOrThrow(),
-				config -> config.withTimeout(duration)
-		)) {
-			scope.fork(() -> {
+			throws InterruptedException, TimeoutException {
+		Deadline.checkNotExceeded();
+		var budget = Deadline.budget(duration);
+		var alarm = new Alarm(budget);
+		try {
+			Deadline.within(duration, () -> {
 				runnable.run();
 				return null;
 			});
-			scope.join();
+		} catch (InterruptedException ex) {
+			if (alarm.disarm())
+				throw timeoutException(budget, ex);
+			throw ex;
+		} catch (RuntimeException | Error ex) {
+			alarm.disarm();
+			throw ex;
+		}
+		if (alarm.disarm())
+			throw timeoutException(budget, null);
+	}
+
+	private static TimeoutException timeoutException(Duration budget, Exception cause) {
+		var exception = new TimeoutException("No result within " + budget);
+		if (cause != null)
+			exception.initCause(cause);
+		return exception;
+	}
+
+	/**
+	 * Forks the callable into its own scope and waits at most {@code duration} for its result.
+	 *
+	 * @throws InterruptedException if the current thread was interrupted while waiting for the result
+	 * @throws StructuredTaskScope.TimeoutException if no result was produced during {@code duration}
+	 * @throws FailedException if the callable threw an exception
+	 * @throws Deadline.ExceededException if the current deadline already passed
+	 */
+	public static <T> T callableInScope(Callable<T> callable, Duration duration)
+			throws InterruptedException, StructuredTaskScope.TimeoutException, FailedException {
+		return Deadline.within(duration, () -> {
+			try (var scope = StructuredTaskScope.open(
+					StructuredTaskScope.Joiner.<T>anySuccessfulResultOrThrow(),
+					Deadline.timeout(duration)
+			)) {
+				Deadline.fork(scope, callable);
+				return scope.join();
+			}
+		});
+	}
+
+	/**
+	 * Forks the runnable into its own scope and waits at most {@code duration} for it to complete.
+	 *
+	 * @throws InterruptedException if the current thread was interrupted while waiting for the result
+	 * @throws StructuredTaskScope.TimeoutException if no result was produced during {@code duration}
+	 * @throws FailedException if the callable threw an exception
+	 * @throws Deadline.ExceededException if the current deadline already passed
+	 */
+	public static void runnableInScope(InterruptableRunnable runnable, Duration duration)
+			throws InterruptedException, StructuredTaskScope.TimeoutException, FailedException {
+		Deadline.within(duration, () -> {
+			try (var scope = StructuredTaskScope.open(
+					StructuredTaskScope.Joiner.allSuccessfulOrThrow(),
+					Deadline.timeout(duration)
+			)) {
+				Deadline.fork(scope, () -> {
+					runnable.run();
+					return null;
+				});
+				scope.join();
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Interrupts the current thread when the budget expires - unless it was disarmed or someone else
+	 * interrupted the thread first, so such an interrupt isn't mistaken for a timeout.
+	 */
+	private static final class Alarm implements Runnable {
+
+		private static final int ARMED = 0;
+		private static final int RINGING = 1;
+		private static final int RUNG = 2;
+		private static final int SILENCED = 3;
+
+		private final Thread thread;
+		private final AtomicInteger state;
+		private final WheelTimer.Handle timer;
+
+		private Alarm(Duration budget) {
+			this.thread = Thread.currentThread();
+			this.state = new AtomicInteger(ARMED);
+			this.timer = WheelTimer.shared().schedule(this, budget);
+		}
+
+		@Override
+		public void run() {
+			if (thread.isInterrupted() || !state.compareAndSet(ARMED, RINGING))
+				return;
+			thread.interrupt();
+			state.set(RUNG);
 		}
+
+		/**
+		 * @return whether the alarm interrupted the thread (in which case the interrupt flag is cleared)
+		 */
+		private boolean disarm() {
+			timer.cancel();
+			if (state.compareAndSet(ARMED, SILENCED))
+				return false;
+			// the alarm is about to interrupt this thread or did so already
+			while (state.get() != RUNG)
+				Thread.onSpinWait();
+			// clear the flag, so it doesn't leak into unrelated code
+			Thread.interrupted();
+			return true;
+		}
+
 	}
+
 }
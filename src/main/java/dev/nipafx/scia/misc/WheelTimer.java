@@ -0,0 +1,170 @@
+package dev.nipafx.scia.misc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A hashed-wheel timer: a single platform thread advances over a ring of buckets once per tick and
+ * runs the actions whose deadline passed. Scheduling and canceling are a queue offer and a CAS,
+ * respectively, which makes it cheap enough to arm (and almost always cancel) a timer per call.
+ *
+ * <p>Actions are run on the timer thread and must be short (e.g. interrupting a thread or unparking it).
+ * The precision is one tick.
+ */
+public class WheelTimer {
+
+	private static final Logger LOG = LoggerFactory.getLogger(WheelTimer.class);
+
+	private static final WheelTimer SHARED = new WheelTimer("shared-wheel-timer", Duration.ofMillis(1), 512);
+
+	private final long tickInNanos;
+	private final List<Entry>[] wheel;
+	private final Queue<Entry> scheduled;
+	private final long startTime;
+
+	@SuppressWarnings("unchecked")
+	public WheelTimer(String name, Duration tick, int buckets) {
+		if (tick.isNegative() || tick.isZero())
+			throw new IllegalArgumentException("Tick must be positive");
+		if (buckets <= 0)
+			throw new IllegalArgumentException("Bucket count must be positive");
+
+		this.tickInNanos = tick.toNanos();
+		this.wheel = new List[buckets];
+		for (int i = 0; i < buckets; i++)
+			wheel[i] = new ArrayList<>();
+		this.scheduled = new ConcurrentLinkedQueue<>();
+		this.startTime = System.nanoTime();
+
+		Thread
+				.ofPlatform()
+				.name(name)
+				.daemon()
+				.start(this::turn);
+	}
+
+	public static WheelTimer shared() {
+		return SHARED;
+	}
+
+	public Handle schedule(Runnable action, Duration delay) {
+		var entry = new Entry(action, System.nanoTime() + delay.toNanos());
+		scheduled.offer(entry);
+		return entry;
+	}
+
+	private void turn() {
+		long tick = 0;
+		while (true) {
+			var tickTime = startTime + (tick + 1) * tickInNanos;
+			var sleepTime = tickTime - System.nanoTime();
+			if (sleepTime > 0)
+				parkFor(sleepTime);
+
+			transferScheduled(tick);
+			expire(wheel[(int) (tick % wheel.length)]);
+			tick++;
+		}
+	}
+
+	private static void parkFor(long nanos) {
+		try {
+			TimeUnit.NANOSECONDS.sleep(nanos);
+		} catch (InterruptedException ex) {
+			// nobody should interrupt the timer thread - if they do anyway, keep turning
+		}
+	}
+
+	private void transferScheduled(long currentTick) {
+		Entry entry;
+		while ((entry = scheduled.poll()) != null) {
+			if (entry.isCanceled())
+				continue;
+			var ticks = Math.max(currentTick, (entry.deadline - startTime) / tickInNanos);
+			entry.remainingRounds = (ticks - currentTick) / wheel.length;
+			wheel[(int) (ticks % wheel.length)].add(entry);
+		}
+	}
+
+	private void expire(List<Entry> bucket) {
+		bucket.removeIf(entry -> {
+			if (entry.isCanceled())
+				return true;
+			if (entry.remainingRounds > 0) {
+				entry.remainingRounds--;
+				return false;
+			}
+			entry.fire();
+			return true;
+		});
+	}
+
+	/**
+	 * A scheduled action.
+	 */
+	public interface Handle {
+
+		/**
+		 * Prevents the action from running. If it's already running, waits for it to complete.
+		 *
+		 * @return {@code true} if the action was canceled before it ran, {@code false} if it ran
+		 */
+		boolean cancel();
+
+	}
+
+	private static final class Entry implements Handle {
+
+		private static final int PENDING = 0;
+		private static final int CANCELED = 1;
+		private static final int FIRING = 2;
+		private static final int FIRED = 3;
+
+		private final Runnable action;
+		private final long deadline;
+		private final AtomicInteger state;
+		// only accessed by the timer thread
+		private long remainingRounds;
+
+		private Entry(Runnable action, long deadline) {
+			this.action = action;
+			this.deadline = deadline;
+			this.state = new AtomicInteger(PENDING);
+		}
+
+		private boolean isCanceled() {
+			return state.get() == CANCELED;
+		}
+
+		private void fire() {
+			if (!state.compareAndSet(PENDING, FIRING))
+				return;
+			try {
+				action.run();
+			} catch (RuntimeException ex) {
+				LOG.error("Timer action failed", ex);
+			} finally {
+				state.set(FIRED);
+			}
+		}
+
+		@Override
+		public boolean cancel() {
+			if (state.compareAndSet(PENDING, CANCELED))
+				return true;
+			while (state.get() == FIRING)
+				Thread.onSpinWait();
+			return state.get() == CANCELED;
+		}
+
+	}
+
+}
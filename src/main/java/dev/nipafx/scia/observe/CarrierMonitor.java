@@ -0,0 +1,167 @@
+package dev.nipafx.scia.observe;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import jdk.management.VirtualThreadSchedulerMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Detects virtual threads that monopolize their carrier and reports when carriers are saturated.
+ *
+ * <ul>
+ *     <li><em>pinning:</em> streams JFR's {@code jdk.VirtualThreadPinned} events that exceed the threshold</li>
+ *     <li><em>holding a carrier:</em> samples the threads created by {@link InstrumentedThreadFactory instrumented
+ *         factories} and flags those that stay {@link Thread.State#RUNNABLE runnable} without the methods on their
+ *         stack (from the topmost frame in this project's code down) changing for longer than the threshold, e.g.
+ *         because they're busy computing without ever blocking - virtual threads that are queued for a carrier
+ *         are runnable, too, but rarely for that long unless carriers are saturated (see below)</li>
+ *     <li><em>saturation:</em> samples the virtual thread scheduler and reports when all carriers are busy
+ *         while virtual threads are queued</li>
+ * </ul>
+ *
+ * <p>Findings are logged as warnings and attributed to scope and thread name as well as to the
+ * topmost frame in this project's code (which usually points at the task).
+ * The sampler runs on a platform thread, so it still works when all carriers are starved.
+ */
+public class CarrierMonitor {
+
+	private static final Logger LOG = LoggerFactory.getLogger(CarrierMonitor.class);
+	private static final String PROJECT_PACKAGE = "dev.nipafx.scia.";
+
+	private final long thresholdInNanos;
+	private final Duration samplingInterval;
+	private final VirtualThreadSchedulerMXBean scheduler;
+	// only accessed by the sampling thread
+	private final Map<Thread, RunnableSample> runnableSince;
+	private boolean saturated;
+
+	private CarrierMonitor(Duration threshold, Duration samplingInterval) {
+		this.thresholdInNanos = threshold.toNanos();
+		this.samplingInterval = samplingInterval;
+		this.scheduler = ManagementFactory.getPlatformMXBean(VirtualThreadSchedulerMXBean.class);
+		this.runnableSince = new HashMap<>();
+		this.saturated = false;
+	}
+
+	/**
+	 * Starts monitoring in the background.
+	 *
+	 * @param threshold how long a thread may hold a carrier before it's flagged
+	 * @param samplingInterval how often threads and scheduler are sampled (should be well below {@code threshold})
+	 */
+	public static CarrierMonitor start(Duration threshold, Duration samplingInterval) {
+		var monitor = new CarrierMonitor(threshold, samplingInterval);
+
+		var pinning = new RecordingStream();
+		pinning.enable("jdk.VirtualThreadPinned").withThreshold(threshold).withStackTrace();
+		pinning.onEvent("jdk.VirtualThreadPinned", CarrierMonitor::reportPinning);
+		pinning.startAsync();
+
+		Thread
+				.ofPlatform()
+				.name("carrier-monitor")
+				.daemon()
+				.start(monitor::sample);
+		return monitor;
+	}
+
+	private static void reportPinning(RecordedEvent event) {
+		var thread = event.getThread("eventThread");
+		var threadName = thread == null ? null : thread.getJavaName();
+		var scope = InstrumentedThreadFactory.scopeOf(threadName).orElse("(unknown scope)");
+		var frame = event.getStackTrace() == null
+				? "(unknown frame)"
+				: event.getStackTrace().getFrames().stream()
+						.filter(f -> f.getMethod().getType().getName().startsWith(PROJECT_PACKAGE))
+						.findFirst()
+						.map(CarrierMonitor::format)
+						.orElse("(unknown frame)");
+		LOG.warn("Thread {} of {} pinned its carrier for {}ms at {}",
+				threadName, scope, event.getDuration().toMillis(), frame);
+	}
+
+	private void sample() {
+		try {
+			while (true) {
+				Thread.sleep(samplingInterval);
+				sampleThreads();
+				sampleScheduler();
+			}
+		} catch (InterruptedException ex) {
+			LOG.error("Carrier monitor interrupted", ex);
+		}
+	}
+
+	private void sampleThreads() {
+		var now = System.nanoTime();
+		var liveThreads = InstrumentedThreadFactory.liveThreads();
+		runnableSince.keySet().retainAll(liveThreads.keySet());
+		liveThreads.forEach((thread, scope) -> {
+			if (thread.getState() != Thread.State.RUNNABLE) {
+				runnableSince.remove(thread);
+				return;
+			}
+
+			var stack = projectStack(thread);
+			// compare methods, not lines, so a loop that spans several lines doesn't look like progress
+			var methods = stack.stream().map(frame -> frame.getClassName() + "::" + frame.getMethodName()).toList();
+			var previous = runnableSince.get(thread);
+			// a thread that made progress (or is now at the start of its task) doesn't hold its carrier
+			if (previous == null || !previous.methods().equals(methods)) {
+				runnableSince.put(thread, new RunnableSample(now, methods, false));
+				return;
+			}
+
+			var since = previous.since();
+			// report only once, but even if sampling was delayed past the interval in which the threshold was crossed
+			if (!previous.reported() && now - since >= thresholdInNanos) {
+				runnableSince.put(thread, new RunnableSample(since, methods, true));
+				LOG.warn("Thread {} of {} held its carrier for {}ms at {}",
+						thread.getName(), scope, Duration.ofNanos(now - since).toMillis(),
+						stack.isEmpty() ? "(unknown frame)" : format(stack.getFirst()));
+			}
+		});
+	}
+
+	/**
+	 * @return the thread's stack from the topmost frame in this project's code down
+	 */
+	private static List<StackTraceElement> projectStack(Thread thread) {
+		return Stream
+				.of(thread.getStackTrace())
+				.dropWhile(frame -> !frame.getClassName().startsWith(PROJECT_PACKAGE))
+				.toList();
+	}
+
+	private static String format(StackTraceElement frame) {
+		return frame.getClassName() + "::" + frame.getMethodName() + ":" + frame.getLineNumber();
+	}
+
+	private static String format(RecordedFrame frame) {
+		return frame.getMethod().getType().getName() + "::" + frame.getMethod().getName() + ":" + frame.getLineNumber();
+	}
+
+	private void sampleScheduler() {
+		var parallelism = scheduler.getParallelism();
+		var mounted = scheduler.getMountedVirtualThreadCount();
+		var queued = scheduler.getQueuedVirtualThreadCount();
+		var nowSaturated = mounted >= parallelism && queued > 0;
+		if (nowSaturated && !saturated)
+			LOG.warn("Carriers saturated: {} of {} carriers busy, {} virtual threads queued", mounted, parallelism, queued);
+		else if (!nowSaturated && saturated)
+			LOG.info("Carriers no longer saturated");
+		saturated = nowSaturated;
+	}
+
+	private record RunnableSample(long since, List<String> methods, boolean reported) { }
+
+}
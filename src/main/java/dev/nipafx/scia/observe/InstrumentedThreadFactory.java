@@ -0,0 +1,206 @@
+package dev.nipafx.scia.observe;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A factory for virtual threads that names them after a scope and records per-scope metrics:
+ * the number of created, started, terminated, and live threads, their total lifetime, and the
+ * total time they were pinned to their carrier.
+ *
+ * <p>The metrics are shared by all factories for the same scope name and exported as a {@link ScopeMXBean}
+ * named {@code dev.nipafx.scia:type=ScopeThreads,scope=$scope}. Each thread's lifetime is also recorded as
+ * a JFR event {@value ScopeThreadEvent#NAME}. Pinning is only observed while {@link #recordPinning()} streams
+ * JFR's {@code jdk.VirtualThreadPinned} events (which arrive with a delay of about a second) - that's a
+ * process-wide recording, so it's up to the application to start (and close) it.
+ */
+public class InstrumentedThreadFactory implements ThreadFactory {
+
+	private static final Logger LOG = LoggerFactory.getLogger(InstrumentedThreadFactory.class);
+
+	private static final ConcurrentMap<String, ScopeMetrics> METRICS = new ConcurrentHashMap<>();
+	// live threads by the name of the scope they were created for
+	private static final ConcurrentMap<Thread, String> LIVE_THREADS = new ConcurrentHashMap<>();
+	private static final Duration PINNING_THRESHOLD = Duration.ofMillis(1);
+
+	private final String scopeName;
+	private final ScopeMetrics metrics;
+	private final ThreadFactory threads;
+
+	private InstrumentedThreadFactory(String scopeName) {
+		this.scopeName = scopeName;
+		this.metrics = METRICS.computeIfAbsent(scopeName, ScopeMetrics::register);
+		// thread names are "$scope-$n" - see `scopeOf`
+		this.threads = Thread.ofVirtual().name(scopeName + "-", 0).factory();
+	}
+
+	public static InstrumentedThreadFactory forScope(String scopeName) {
+		return new InstrumentedThreadFactory(scopeName);
+	}
+
+	/**
+	 * Starts streaming pinning events into the metrics of all scopes until the returned stream is closed.
+	 */
+	public static RecordingStream recordPinning() {
+		var pinning = new RecordingStream();
+		pinning.enable("jdk.VirtualThreadPinned").withThreshold(PINNING_THRESHOLD);
+		pinning.onEvent("jdk.VirtualThreadPinned", InstrumentedThreadFactory::recordPinning);
+		pinning.startAsync();
+		return pinning;
+	}
+
+	/**
+	 * @return the name of the scope whose instrumented factory created the thread with the given name
+	 */
+	static Optional<String> scopeOf(String threadName) {
+		if (threadName == null)
+			return Optional.empty();
+		var separator = threadName.lastIndexOf('-');
+		if (separator < 0)
+			return Optional.empty();
+		var scope = threadName.substring(0, separator);
+		return METRICS.containsKey(scope) ? Optional.of(scope) : Optional.empty();
+	}
+
+	/**
+	 * @return the live threads created by instrumented factories, mapped to the names of their scopes
+	 */
+	static Map<Thread, String> liveThreads() {
+		return Collections.unmodifiableMap(LIVE_THREADS);
+	}
+
+	@Override
+	public Thread newThread(Runnable task) {
+		metrics.created.increment();
+		return threads.newThread(() -> {
+			var event = new ScopeThreadEvent();
+			event.scope = scopeName;
+			event.begin();
+			metrics.started.increment();
+			metrics.live.increment();
+			LIVE_THREADS.put(Thread.currentThread(), scopeName);
+			var start = System.nanoTime();
+			try {
+				task.run();
+			} finally {
+				LIVE_THREADS.remove(Thread.currentThread());
+				metrics.lifetimeInNanos.add(System.nanoTime() - start);
+				metrics.live.decrement();
+				metrics.terminated.increment();
+				event.commit();
+			}
+		});
+	}
+
+	private static void recordPinning(RecordedEvent event) {
+		var thread = event.getThread("eventThread");
+		if (thread == null)
+			return;
+		scopeOf(thread.getJavaName())
+				.map(METRICS::get)
+				.ifPresent(metrics -> metrics.pinnedInNanos.add(event.getDuration().toNanos()));
+	}
+
+	/**
+	 * Thread metrics of a scope.
+	 */
+	public interface ScopeMXBean {
+
+		long getCreatedThreads();
+
+		long getStartedThreads();
+
+		long getTerminatedThreads();
+
+		long getLiveThreads();
+
+		long getTotalLifetimeInMs();
+
+		long getTotalPinnedTimeInMs();
+
+	}
+
+	private static final class ScopeMetrics implements ScopeMXBean {
+
+		private final LongAdder created = new LongAdder();
+		private final LongAdder started = new LongAdder();
+		private final LongAdder terminated = new LongAdder();
+		private final LongAdder live = new LongAdder();
+		private final LongAdder lifetimeInNanos = new LongAdder();
+		private final LongAdder pinnedInNanos = new LongAdder();
+
+		private static ScopeMetrics register(String scopeName) {
+			var metrics = new ScopeMetrics();
+			try {
+				var objectName = new ObjectName("dev.nipafx.scia:type=ScopeThreads,scope=" + ObjectName.quote(scopeName));
+				ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName);
+			} catch (JMException ex) {
+				LOG.warn("Thread metrics for scope {} not registered", scopeName, ex);
+			}
+			return metrics;
+		}
+
+		@Override
+		public long getCreatedThreads() {
+			return created.sum();
+		}
+
+		@Override
+		public long getStartedThreads() {
+			return started.sum();
+		}
+
+		@Override
+		public long getTerminatedThreads() {
+			return terminated.sum();
+		}
+
+		@Override
+		public long getLiveThreads() {
+			return live.sum();
+		}
+
+		@Override
+		public long getTotalLifetimeInMs() {
+			return TimeUnit.NANOSECONDS.toMillis(lifetimeInNanos.sum());
+		}
+
+		@Override
+		public long getTotalPinnedTimeInMs() {
+			return TimeUnit.NANOSECONDS.toMillis(pinnedInNanos.sum());
+		}
+
+	}
+
+	@Name(ScopeThreadEvent.NAME)
+	@Label("Scope Thread")
+	@Category("Structured Concurrency")
+	static final class ScopeThreadEvent extends Event {
+
+		static final String NAME = "dev.nipafx.scia.ScopeThread";
+
+		@Label("Scope")
+		String scope;
+
+	}
+
+}
@@ -0,0 +1,139 @@
+package dev.nipafx.scia.observe;
+
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs only a sample of the events at a call site and periodically summarizes how many events occurred,
+ * e.g. "12,345 items processed in last 10s (12 logged)" (unless all events were logged).
+ *
+ * <p>Create one instance per call site and keep it in a constant - or, if events from different sources
+ * shouldn't compete for the same samples, one per call site and source. All bookkeeping uses atomic counters
+ * and no locks. Summaries are logged by the thread that records the first event after the summary interval
+ * passed, so there's no summary while no events occur.
+ */
+public class SampledLogger {
+
+	private static final long ONE_SECOND_IN_NANOS = Duration.ofSeconds(1).toNanos();
+	private static final int COUNT_BITS = 24;
+	private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+	private final Logger logger;
+	private final String eventDescription;
+	private final long summaryIntervalInNanos;
+	private final Sampler sampler;
+
+	private final AtomicLong events;
+	private final AtomicLong loggedEvents;
+	private final AtomicLong lastSummary;
+
+	private SampledLogger(Logger logger, String eventDescription, Duration summaryInterval, Sampler sampler) {
+		this.logger = logger;
+		this.eventDescription = eventDescription;
+		this.summaryIntervalInNanos = summaryInterval.toNanos();
+		this.sampler = sampler;
+
+		this.events = new AtomicLong();
+		this.loggedEvents = new AtomicLong();
+		this.lastSummary = new AtomicLong(System.nanoTime());
+	}
+
+	/**
+	 * Logs every event (and thus never summarizes).
+	 */
+	public static SampledLogger all(Logger logger) {
+		return new SampledLogger(logger, "events", Duration.ofNanos(Long.MAX_VALUE), () -> true);
+	}
+
+	/**
+	 * Logs every {@code n}-th event.
+	 *
+	 * @param eventDescription describes the events in the summary, e.g. "items processed"
+	 */
+	public static SampledLogger oneIn(int n, Logger logger, String eventDescription, Duration summaryInterval) {
+		if (n <= 0)
+			throw new IllegalArgumentException("Sampling rate must be positive");
+		var counter = new AtomicLong();
+		return new SampledLogger(logger, eventDescription, summaryInterval, () -> counter.getAndIncrement() % n == 0);
+	}
+
+	/**
+	 * Logs at most {@code maxEvents} events per second.
+	 *
+	 * @param eventDescription describes the events in the summary, e.g. "items processed"
+	 */
+	public static SampledLogger atMostPerSecond(int maxEvents, Logger logger, String eventDescription, Duration summaryInterval) {
+		if (maxEvents <= 0 || maxEvents > COUNT_MASK)
+			throw new IllegalArgumentException("Maximum number of events must be in (0, %d]".formatted(COUNT_MASK));
+		// the current second in the upper bits, the number of events logged during it in the lower
+		var window = new AtomicLong();
+		var start = System.nanoTime();
+		return new SampledLogger(logger, eventDescription, summaryInterval, () -> {
+			var second = (System.nanoTime() - start) / ONE_SECOND_IN_NANOS;
+			while (true) {
+				var current = window.get();
+				var count = (current >>> COUNT_BITS) == second ? current & COUNT_MASK : 0;
+				if (count >= maxEvents)
+					return false;
+				if (window.compareAndSet(current, (second << COUNT_BITS) | (count + 1)))
+					return true;
+			}
+		});
+	}
+
+	public void info(String format, Object argument) {
+		events.incrementAndGet();
+		if (sampler.sample()) {
+			loggedEvents.incrementAndGet();
+			logger.info(format, argument);
+		}
+		summarizeIfDue();
+	}
+
+	private void summarizeIfDue() {
+		var now = System.nanoTime();
+		var last = lastSummary.get();
+		if (now - last < summaryIntervalInNanos || !lastSummary.compareAndSet(last, now))
+			return;
+
+		var eventCount = events.getAndSet(0);
+		var loggedCount = loggedEvents.getAndSet(0);
+		// if all events were logged, a summary adds nothing
+		if (loggedCount < eventCount)
+			logger.info("%,d %s in last %ds (%,d logged)".formatted(
+					eventCount, eventDescription, Duration.ofNanos(now - last).toSeconds(), loggedCount));
+	}
+
+	/**
+	 * Creates sampled loggers that all sample the same way - for code that creates its loggers itself
+	 * (e.g. one per instance), so its callers can choose how.
+	 */
+	public interface Sampling {
+
+		SampledLogger create(Logger logger, String eventDescription, Duration summaryInterval);
+
+		static Sampling all() {
+			return (logger, _, _) -> SampledLogger.all(logger);
+		}
+
+		static Sampling oneIn(int n) {
+			return (logger, eventDescription, summaryInterval) ->
+					SampledLogger.oneIn(n, logger, eventDescription, summaryInterval);
+		}
+
+		static Sampling atMostPerSecond(int maxEvents) {
+			return (logger, eventDescription, summaryInterval) ->
+					SampledLogger.atMostPerSecond(maxEvents, logger, eventDescription, summaryInterval);
+		}
+
+	}
+
+	private interface Sampler {
+
+		boolean sample();
+
+	}
+
+}
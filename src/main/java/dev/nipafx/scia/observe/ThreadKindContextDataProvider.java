@@ -0,0 +1,44 @@
+package dev.nipafx.scia.observe;
+
+import org.apache.logging.log4j.core.util.ContextDataProvider;
+import org.apache.logging.log4j.util.SortedArrayStringMap;
+import org.apache.logging.log4j.util.StringMap;
+
+import java.util.Map;
+
+/**
+ * Adds the kind of the logging thread (virtual or platform) to each log event's context data.
+ *
+ * <p>Log4j calls context data providers when an event is created, i.e. on the logging thread, so the kind is
+ * correct even if the event is formatted later on another thread (e.g. by an async appender or logger).
+ * Log4j asks for the data as a {@link StringMap}, and by default wraps the {@code Map} in a new one for every
+ * event, so this provider hands out frozen constants instead.
+ */
+public class ThreadKindContextDataProvider implements ContextDataProvider {
+
+	static final String KEY = "tkind";
+
+	private static final Map<String, String> VIRTUAL = Map.of(KEY, "v");
+	private static final Map<String, String> PLATFORM = Map.of(KEY, "p");
+
+	private static final StringMap VIRTUAL_STRING_MAP = frozenStringMap(VIRTUAL);
+	private static final StringMap PLATFORM_STRING_MAP = frozenStringMap(PLATFORM);
+
+	private static StringMap frozenStringMap(Map<String, String> map) {
+		var stringMap = new SortedArrayStringMap(map.size());
+		map.forEach(stringMap::putValue);
+		stringMap.freeze();
+		return stringMap;
+	}
+
+	@Override
+	public Map<String, String> supplyContextData() {
+		return Thread.currentThread().isVirtual() ? VIRTUAL : PLATFORM;
+	}
+
+	@Override
+	public StringMap supplyStringMap() {
+		return Thread.currentThread().isVirtual() ? VIRTUAL_STRING_MAP : PLATFORM_STRING_MAP;
+	}
+
+}
@@ -20,6 +20,13 @@ public final class ThreadKindPatternConverter extends LogEventPatternConverter {
 
     @Override
     public void format(final LogEvent event, final StringBuilder toAppendTo) {
+		// captured on the logging thread when the event was created (see `ThreadKindContextDataProvider`)
+		String capturedKind = event.getContextData().getValue(ThreadKindContextDataProvider.KEY);
+		if (capturedKind != null) {
+			toAppendTo.append(capturedKind);
+			return;
+		}
+
 		boolean onLoggingThread = event.getThreadId() == Thread.currentThread().threadId();
 		if (onLoggingThread)
 			toAppendTo.append(Thread.currentThread().isVirtual() ? "v" : "p");
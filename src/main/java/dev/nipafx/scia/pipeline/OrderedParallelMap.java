@@ -0,0 +1,158 @@
+package dev.nipafx.scia.pipeline;
+
+import dev.nipafx.scia.pipeline.Pipeline.Downstream;
+import dev.nipafx.scia.pipeline.Pipeline.Mapper;
+import dev.nipafx.scia.queue.InterruptableConsumer;
+import dev.nipafx.scia.queue.InterruptableSupplier;
+
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Maps items on several subtasks and emits the results in the order in which the items were taken.
+ *
+ * <p>Each item is stamped with a sequence number when it's taken and its result is put into a ring
+ * of {@code bufferSize} slots. Whichever subtask completes the oldest outstanding item emits it and all
+ * consecutive completed results after it. Subtasks only take an item when its result has a free slot,
+ * so if the oldest item is slow, the others complete at most {@code bufferSize - 1} items and then wait.
+ *
+ * <p>Use an instance for one run only.
+ */
+public class OrderedParallelMap<T, R> {
+
+	private static final Object NULL = new Object();
+
+	private final Mapper<? super T, ? extends R> mapper;
+	private final int parallelism;
+
+	// held while waiting for a free slot and taking an item, so sequence numbers follow the input order
+	private final ReentrantLock intake;
+	// guarded by `intake`
+	private long taken;
+
+	private final ReentrantLock lock;
+	private final Condition slotFreed;
+	// guarded by `lock`
+	private final Object[] results;
+	private long emitted;
+	private boolean emitting;
+
+	public OrderedParallelMap(Mapper<? super T, ? extends R> mapper, int parallelism, int bufferSize) {
+		if (parallelism <= 0 || bufferSize <= 0)
+			throw new IllegalArgumentException("Parallelism and buffer size must be positive");
+		this.mapper = mapper;
+		this.parallelism = parallelism;
+
+		this.intake = new ReentrantLock();
+		this.taken = 0;
+
+		this.lock = new ReentrantLock();
+		this.slotFreed = lock.newCondition();
+		this.results = new Object[bufferSize];
+		this.emitted = 0;
+		this.emitting = false;
+	}
+
+	/**
+	 * Maps items from the input to the output until interrupted or until mapping an item fails.
+	 */
+	public Void run(InterruptableSupplier<? extends T> input, InterruptableConsumer<? super R> output)
+			throws InterruptedException {
+		try (var scope = StructuredTaskScope.open()) {
+			for (int i = 0; i < parallelism; i++)
+				scope.fork(() -> work(input, item -> {
+					@SuppressWarnings("unchecked")
+					var result = (R) item;
+					output.accept(result);
+				}));
+			scope.join();
+			return null;
+		}
+	}
+
+	int parallelism() {
+		return parallelism;
+	}
+
+	Void work(InterruptableSupplier<?> input, Downstream output) throws Exception {
+		while (true) {
+			T item;
+			long sequence;
+			intake.lockInterruptibly();
+			try {
+				awaitFreeSlot();
+				@SuppressWarnings("unchecked")
+				var typedItem = (T) input.get();
+				item = typedItem;
+				sequence = taken++;
+			} finally {
+				intake.unlock();
+			}
+
+			R result = mapper.apply(item);
+			if (complete(sequence, result))
+				emit(output);
+		}
+	}
+
+	private void awaitFreeSlot() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (taken - emitted >= results.length)
+				slotFreed.await();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return whether the current thread needs to emit results
+	 */
+	private boolean complete(long sequence, R result) {
+		lock.lock();
+		try {
+			results[slot(sequence)] = result == null ? NULL : result;
+			// if another subtask is emitting, it will pick this result up
+			if (emitting || sequence != emitted)
+				return false;
+			emitting = true;
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void emit(Downstream output) throws Exception {
+		while (true) {
+			Object next;
+			lock.lock();
+			try {
+				next = results[slot(emitted)];
+				if (next == null) {
+					emitting = false;
+					return;
+				}
+				results[slot(emitted)] = null;
+			} finally {
+				lock.unlock();
+			}
+
+			// emit without holding the lock, so other subtasks can complete items while the output blocks
+			output.accept(next == NULL ? null : next);
+
+			lock.lock();
+			try {
+				emitted++;
+				slotFreed.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	private int slot(long sequence) {
+		return (int) (sequence % results.length);
+	}
+
+}
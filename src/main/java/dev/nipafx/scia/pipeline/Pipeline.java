@@ -0,0 +1,182 @@
+package dev.nipafx.scia.pipeline;
+
+import dev.nipafx.scia.queue.BlockingMessageQueue;
+import dev.nipafx.scia.queue.InterruptableConsumer;
+import dev.nipafx.scia.queue.InterruptableSupplier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.function.Predicate;
+
+/**
+ * A pipeline of stages that process the items from a source and hand them to a sink, e.g.:
+ *
+ * <pre>{@code
+ * Pipeline
+ * 	.from(events)
+ * 	.filter(item -> item.startsWith("Item"))
+ * 	.parallel(4)
+ * 	.map(this::enrich)
+ * 	.window(500, Duration.ofMillis(500))
+ * 	.run(this::writeBatch);
+ * }</pre>
+ *
+ * <p>Each stage runs on one or more subtasks (see {@link #parallel(int)}) and pulls items from the queue
+ * that the previous stage pushes into. Stateless operations ({@link #filter(Predicate) filter} and
+ * {@link #map(Mapper) map}) don't start a new stage, though - they're fused into the current one, so the item
+ * is passed on by a method call instead of a queue hop. The sink runs on the last stage's subtasks,
+ * so it must be thread-safe if that stage is parallel. With more than one subtask per stage, items can
+ * overtake one another - unless the stage was started with {@link #mapOrdered(int, int, Mapper) mapOrdered}.
+ *
+ * <p>All stages' subtasks are forked into one scope that's owned by {@link #run(InterruptableConsumer) run}.
+ * If an operation throws, the scope cancels all stages and {@code run} throws
+ * {@link StructuredTaskScope.FailedException}. If {@code run} is interrupted, it cancels all stages, too.
+ *
+ * <p>Pipelines are immutable, and each operation returns a new instance.
+ */
+public final class Pipeline<T> {
+
+	private static final int DEFAULT_BUFFER_SIZE = 256;
+
+	private final InterruptableSupplier<?> source;
+	private final int bufferSize;
+	// stages before the current one
+	private final List<Stage> previousStages;
+	// the stage that stateless operations are fused into
+	private final Stage currentStage;
+
+	private Pipeline(InterruptableSupplier<?> source, int bufferSize, List<Stage> previousStages, Stage currentStage) {
+		this.source = source;
+		this.bufferSize = bufferSize;
+		this.previousStages = previousStages;
+		this.currentStage = currentStage;
+	}
+
+	public static <T> Pipeline<T> from(InterruptableSupplier<T> source) {
+		return from(source, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param bufferSize the capacity of the queues between stages - when full, the previous stage waits
+	 */
+	public static <T> Pipeline<T> from(InterruptableSupplier<T> source, int bufferSize) {
+		if (bufferSize <= 0)
+			throw new IllegalArgumentException("Buffer size must be positive");
+		return new Pipeline<>(source, bufferSize, List.of(), Stage.pulling(1));
+	}
+
+	public Pipeline<T> filter(Predicate<? super T> filter) {
+		return fuse(downstream -> item -> {
+			@SuppressWarnings("unchecked")
+			var typedItem = (T) item;
+			if (filter.test(typedItem))
+				downstream.accept(item);
+		});
+	}
+
+	public <R> Pipeline<R> map(Mapper<? super T, ? extends R> mapper) {
+		return fuse(downstream -> item -> {
+			@SuppressWarnings("unchecked")
+			var typedItem = (T) item;
+			downstream.accept(mapper.apply(typedItem));
+		});
+	}
+
+	/**
+	 * Starts a new stage that runs on {@code parallelism} subtasks.
+	 */
+	public Pipeline<T> parallel(int parallelism) {
+		if (parallelism <= 0)
+			throw new IllegalArgumentException("Parallelism must be positive");
+		return next(Stage.pulling(parallelism));
+	}
+
+	/**
+	 * Starts a new stage that maps items on {@code parallelism} subtasks but passes the results on in the order
+	 * in which the items arrived. At most {@code bufferSize} items are in flight, so if one item takes long,
+	 * the stage stops taking new items until it's done (see {@link OrderedParallelMap}).
+	 */
+	public <R> Pipeline<R> mapOrdered(int parallelism, int bufferSize, Mapper<? super T, ? extends R> mapper) {
+		if (parallelism <= 0 || bufferSize <= 0)
+			throw new IllegalArgumentException("Parallelism and buffer size must be positive");
+		return next(Stage.resequencing(parallelism, mapper, bufferSize));
+	}
+
+	/**
+	 * Starts a new stage that runs on a single subtask, so items don't overtake one another in it.
+	 */
+	public Pipeline<T> sequential() {
+		return next(Stage.pulling(1));
+	}
+
+	/**
+	 * Starts a new stage that runs on a single subtask and collects items into windows, each of which
+	 * is passed on once it contains {@code maxSize} items or {@code maxWait} passed since its first item arrived.
+	 */
+	public Pipeline<List<T>> window(int maxSize, Duration maxWait) {
+		if (maxSize <= 0)
+			throw new IllegalArgumentException("Window size must be positive");
+		return next(Stage.windowing(maxSize, maxWait));
+	}
+
+	private <R> Pipeline<R> fuse(Operator operator) {
+		return new Pipeline<>(source, bufferSize, previousStages, currentStage.fuse(operator));
+	}
+
+	private <R> Pipeline<R> next(Stage stage) {
+		var stages = new ArrayList<>(previousStages);
+		stages.add(currentStage);
+		return new Pipeline<>(source, bufferSize, List.copyOf(stages), stage);
+	}
+
+	/**
+	 * Runs the pipeline until an operation fails or the current thread is interrupted.
+	 */
+	public Void run(InterruptableConsumer<? super T> sink) throws InterruptedException {
+		var stages = new ArrayList<>(previousStages);
+		stages.add(currentStage);
+
+		try (var scope = StructuredTaskScope.open()) {
+			InterruptableSupplier<?> input = source;
+			for (int i = 0; i < stages.size(); i++) {
+				var stage = stages.get(i);
+				var last = i == stages.size() - 1;
+				var queue = last ? null : new BlockingMessageQueue<Object>(bufferSize);
+				Downstream output = last
+						? item -> {
+							@SuppressWarnings("unchecked")
+							var typedItem = (T) item;
+							sink.accept(typedItem);
+						}
+						: queue::accept;
+				stage.fork(scope, input, output);
+				input = queue;
+			}
+
+			scope.join();
+			return null;
+		}
+	}
+
+	public interface Mapper<T, R> {
+
+		R apply(T item) throws Exception;
+
+	}
+
+	// the next operation in the same stage (or the queue or sink after the stage's last operation)
+	interface Downstream {
+
+		void accept(Object item) throws Exception;
+
+	}
+
+	interface Operator {
+
+		Downstream wrap(Downstream downstream);
+
+	}
+
+}
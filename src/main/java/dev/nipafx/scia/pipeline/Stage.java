@@ -0,0 +1,91 @@
+package dev.nipafx.scia.pipeline;
+
+import dev.nipafx.scia.pipeline.Pipeline.Downstream;
+import dev.nipafx.scia.pipeline.Pipeline.Operator;
+import dev.nipafx.scia.queue.BlockingMessageQueue;
+import dev.nipafx.scia.queue.InterruptableSupplier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.StructuredTaskScope;
+
+/**
+ * A pipeline stage: how it takes items from its input and the fused operations it applies to them.
+ */
+record Stage(int parallelism, Intake intake, Operator operators) {
+
+	static Stage pulling(int parallelism) {
+		return new Stage(parallelism, new Intake.Each(), downstream -> downstream);
+	}
+
+	static Stage windowing(int maxSize, Duration maxWait) {
+		return new Stage(1, new Intake.Windows(maxSize, maxWait), downstream -> downstream);
+	}
+
+	static Stage resequencing(int parallelism, Pipeline.Mapper<?, ?> mapper, int bufferSize) {
+		return new Stage(parallelism, new Intake.Resequenced(mapper, bufferSize), downstream -> downstream);
+	}
+
+	Stage fuse(Operator operator) {
+		Operator fused = downstream -> operators.wrap(operator.wrap(downstream));
+		return new Stage(parallelism, intake, fused);
+	}
+
+	void fork(StructuredTaskScope<Object, ?> scope, InterruptableSupplier<?> input, Downstream output) {
+		switch (intake) {
+			// the stage's subtasks share the resequencing buffer
+			case Intake.Resequenced(var mapper, var bufferSize) -> {
+				@SuppressWarnings("unchecked")
+				var map = new OrderedParallelMap<>((Pipeline.Mapper<Object, Object>) mapper, parallelism, bufferSize);
+				var downstream = operators.wrap(output);
+				for (int i = 0; i < parallelism; i++)
+					scope.fork(() -> map.work(input, downstream));
+			}
+			default -> {
+				for (int i = 0; i < parallelism; i++)
+					scope.fork(() -> run(input, output));
+			}
+		}
+	}
+
+	private Void run(InterruptableSupplier<?> input, Downstream output) throws Exception {
+		var downstream = operators.wrap(output);
+		switch (intake) {
+			case Intake.Each _ -> {
+				while (true)
+					downstream.accept(input.get());
+			}
+			case Intake.Windows(var maxSize, var maxWait) -> {
+				// windowing stages are never the first, so their input is a queue between stages
+				var queue = (BlockingMessageQueue<?>) input;
+				var window = new ArrayList<>(maxSize);
+				var closesAt = 0L;
+				while (true) {
+					var item = window.isEmpty()
+							? queue.get()
+							: queue.poll(Duration.ofNanos(Math.max(0, closesAt - System.nanoTime())));
+					if (item != null) {
+						if (window.isEmpty())
+							closesAt = System.nanoTime() + maxWait.toNanos();
+						window.add(item);
+					}
+					if (window.size() >= maxSize || (!window.isEmpty() && closesAt - System.nanoTime() <= 0)) {
+						downstream.accept(List.copyOf(window));
+						window.clear();
+					}
+				}
+			}
+			case Intake.Resequenced _ -> throw new IllegalStateException("Resequencing stages are forked by `fork`");
+		}
+	}
+
+	sealed interface Intake {
+
+		record Each() implements Intake { }
+		record Windows(int maxSize, Duration maxWait) implements Intake { }
+		record Resequenced(Pipeline.Mapper<?, ?> mapper, int bufferSize) implements Intake { }
+
+	}
+
+}
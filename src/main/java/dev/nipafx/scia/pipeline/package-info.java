@@ -0,0 +1,5 @@
+/**
+ * A small pipeline API whose stages run as subtasks of one scope and are connected by this project's queues.
+ * Like the rest of this project, it's a demo and not production-ready.
+ */
+package dev.nipafx.scia.pipeline;
@@ -1,7 +1,10 @@
 package dev.nipafx.scia.queue;
 
+import java.time.Duration;
+import java.util.Collection;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 public class BlockingMessageQueue<T> implements MessageQueue<T> {
 
@@ -21,4 +24,24 @@ public class BlockingMessageQueue<T> implements MessageQueue<T> {
 		return queue.take();
 	}
 
+	/**
+	 * @return the next element or {@code null} if none arrived within the timeout
+	 */
+	public T poll(Duration timeout) throws InterruptedException {
+		return queue.poll(timeout.toNanos(), TimeUnit.NANOSECONDS);
+	}
+
+	public int size() {
+		return queue.size();
+	}
+
+	/**
+	 * Removes up to {@code maxElements} elements without waiting and adds them to the collection.
+	 *
+	 * @return the number of removed elements
+	 */
+	public int drainTo(Collection<? super T> collection, int maxElements) {
+		return queue.drainTo(collection, maxElements);
+	}
+
 }
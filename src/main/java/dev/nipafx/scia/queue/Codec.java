@@ -0,0 +1,40 @@
+package dev.nipafx.scia.queue;
+
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Turns messages into bytes and back, so queues can move them between processes.
+ */
+public interface Codec<T> {
+
+	/**
+	 * Writes the message into the buffer, starting at its position.
+	 *
+	 * @throws java.nio.BufferOverflowException if the message doesn't fit into the buffer's remaining bytes
+	 */
+	void encode(T message, ByteBuffer target);
+
+	/**
+	 * Reads a message from the buffer's remaining bytes.
+	 */
+	T decode(ByteBuffer source);
+
+	static Codec<String> utf8() {
+		return new Codec<>() {
+
+			@Override
+			public void encode(String message, ByteBuffer target) {
+				target.put(message.getBytes(UTF_8));
+			}
+
+			@Override
+			public String decode(ByteBuffer source) {
+				return UTF_8.decode(source).toString();
+			}
+
+		};
+	}
+
+}
@@ -0,0 +1,129 @@
+package dev.nipafx.scia.queue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+/**
+ * A group of consumers that share the work from several queues: each consumer has a home queue
+ * (consumer {@code i} has queue {@code i % queues}), and when that's empty, it steals a batch
+ * from the most backlogged other queue. If there are fewer consumers than queues, the extra queues
+ * are assigned round-robin as additional home queues (consumer {@code i} has all queues {@code q}
+ * with {@code q % consumers == i}), so no queue depends on being stolen from.
+ *
+ * <p>Only one consumer steals from a queue at a time - others skip it and try the next most backlogged one,
+ * so an overloaded queue isn't contended by all idle consumers at once. A thief takes at most half the
+ * victim's backlog, leaving the rest to its home consumers. Consumers that found nothing to steal wait
+ * on their home queue for a short while before they look again.
+ *
+ * <p>The consumers are subtasks of a scope owned by {@link #serve()}. The handler is called concurrently,
+ * and if it throws, all consumers are canceled.
+ */
+public class ConsumerGroup<T> {
+
+	private static final Duration IDLE_WAIT = Duration.ofMillis(10);
+
+	private final List<BlockingMessageQueue<T>> queues;
+	// held by the consumer that's stealing from the queue with the same index
+	private final List<ReentrantLock> stealLocks;
+	private final int consumers;
+	private final int maxStealBatch;
+	private final InterruptableConsumer<? super T> handler;
+
+	public ConsumerGroup(
+			List<BlockingMessageQueue<T>> queues, int consumers, int maxStealBatch,
+			InterruptableConsumer<? super T> handler) {
+		if (queues.isEmpty())
+			throw new IllegalArgumentException("There must be at least one queue");
+		if (consumers <= 0 || maxStealBatch <= 0)
+			throw new IllegalArgumentException("Number of consumers and maximum steal batch size must be positive");
+		this.queues = List.copyOf(queues);
+		this.stealLocks = queues.stream().map(_ -> new ReentrantLock()).toList();
+		this.consumers = consumers;
+		this.maxStealBatch = maxStealBatch;
+		this.handler = handler;
+	}
+
+	/**
+	 * Consumes items until interrupted or until the handler throws.
+	 */
+	public Void serve() throws InterruptedException {
+		try (var scope = StructuredTaskScope.open()) {
+			for (int i = 0; i < consumers; i++) {
+				var homes = homesOf(i);
+				scope.fork(() -> consume(homes));
+			}
+			scope.join();
+			return null;
+		}
+	}
+
+	private List<Integer> homesOf(int consumer) {
+		if (consumers >= queues.size())
+			return List.of(consumer % queues.size());
+		return IntStream
+				.iterate(consumer, queue -> queue < queues.size(), queue -> queue + consumers)
+				.boxed()
+				.toList();
+	}
+
+	private Void consume(List<Integer> homes) throws InterruptedException {
+		var batch = new ArrayList<T>(maxStealBatch);
+		// the home queue that's polled first, rotated so none of them is favored
+		var first = 0;
+		while (true) {
+			T item = null;
+			for (int i = 0; i < homes.size() && item == null; i++)
+				item = queues.get(homes.get((first + i) % homes.size())).poll(Duration.ZERO);
+			first = (first + 1) % homes.size();
+			if (item == null && steal(homes, batch)) {
+				for (T stolen : batch)
+					handler.accept(stolen);
+				batch.clear();
+				continue;
+			}
+			if (item == null)
+				item = queues.get(homes.get(first)).poll(IDLE_WAIT);
+			if (item != null)
+				handler.accept(item);
+		}
+	}
+
+	private boolean steal(List<Integer> homes, List<T> batch) {
+		var backlogs = new int[queues.size()];
+		for (int i = 0; i < backlogs.length; i++)
+			backlogs[i] = homes.contains(i) ? 0 : queues.get(i).size();
+
+		while (true) {
+			var victim = mostBacklogged(backlogs);
+			if (victim < 0)
+				return false;
+			// don't try this victim again, whether it's contended or not
+			backlogs[victim] = 0;
+
+			var lock = stealLocks.get(victim);
+			if (!lock.tryLock())
+				continue;
+			try {
+				var queue = queues.get(victim);
+				var backlog = queue.size();
+				if (backlog > 0 && queue.drainTo(batch, Math.min(maxStealBatch, (backlog + 1) / 2)) > 0)
+					return true;
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	private static int mostBacklogged(int[] backlogs) {
+		var most = -1;
+		for (int i = 0; i < backlogs.length; i++)
+			if (backlogs[i] > 0 && (most < 0 || backlogs[i] > backlogs[most]))
+				most = i;
+		return most;
+	}
+
+}
@@ -0,0 +1,307 @@
+package dev.nipafx.scia.queue;
+
+import dev.nipafx.scia.misc.Scopes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Processes items in order per key and in parallel across keys: each key is hashed to one of a fixed number
+ * of partitions, and each partition is a queue that's drained by one subtask.
+ *
+ * <p>Partitions are created when an item arrives for them and retired when they were idle for a while,
+ * so there are only as many subtasks as there are busy partitions. The subtasks are forked by
+ * {@link #serve()}, which needs to be forked into a long-lived scope itself - when that scope shuts down,
+ * {@code serve()} is interrupted and cancels all partitions. As long as {@code serve()} doesn't run,
+ * items are queued but not processed. If a partition's queue is full, {@link #accept(Object) accept} blocks.
+ * If the handler throws, the failure is logged and the partition moves on to the next item.
+ *
+ * <p>Each partition counts items per key, and if a key accounts for more than half of a partition's items in
+ * a detection interval, it's logged as a hot key. The executor exports metrics as a {@link KeyedExecutorMXBean}
+ * named {@code dev.nipafx.scia:type=KeyedExecutor,name=$name}.
+ */
+public class KeyedExecutor<K, T> implements InterruptableConsumer<T> {
+
+	private static final Logger LOG = LoggerFactory.getLogger(KeyedExecutor.class);
+
+	private static final Duration HOT_KEY_INTERVAL = Duration.ofSeconds(1);
+	private static final int HOT_KEY_MIN_ITEMS = 100;
+
+	private final Function<? super T, ? extends K> key;
+	private final InterruptableConsumer<? super T> handler;
+	private final int partitionCapacity;
+	private final long idleTimeoutInNanos;
+
+	private final AtomicReferenceArray<Partition> partitions;
+	// partitions that were created but not yet forked
+	private final BlockingQueue<Partition> created;
+	private final Metrics metrics;
+
+	/**
+	 * @param partitionCount the number of partitions, i.e. the maximum parallelism
+	 * @param partitionCapacity how many items a partition queues before {@code accept} blocks
+	 * @param idleTimeout how long a partition waits for an item before it's retired
+	 */
+	public KeyedExecutor(
+			String name, Function<? super T, ? extends K> key, InterruptableConsumer<? super T> handler,
+			int partitionCount, int partitionCapacity, Duration idleTimeout) {
+		if (partitionCount <= 0 || partitionCapacity <= 0)
+			throw new IllegalArgumentException("Number and capacity of partitions must be positive");
+		this.key = key;
+		this.handler = handler;
+		this.partitionCapacity = partitionCapacity;
+		this.idleTimeoutInNanos = idleTimeout.toNanos();
+
+		this.partitions = new AtomicReferenceArray<>(partitionCount);
+		this.created = new LinkedBlockingQueue<>();
+		this.metrics = Metrics.register(name);
+	}
+
+	@Override
+	public void accept(T item) throws InterruptedException {
+		var itemKey = key.apply(item);
+		// spread the hash like `HashMap` does, so keys with similar hashes end up in different partitions
+		var hash = itemKey.hashCode();
+		var index = Math.floorMod(hash ^ (hash >>> 16), partitions.length());
+		while (true) {
+			var partition = partitions.get(index);
+			if (partition == null) {
+				var newPartition = new Partition(index);
+				if (!partitions.compareAndSet(index, null, newPartition))
+					continue;
+				metrics.activePartitions.increment();
+				// `add` can't be interrupted (unlike `put`), which would leave the partition without a subtask
+				created.add(newPartition);
+				partition = newPartition;
+			}
+			if (partition.put(itemKey, item)) {
+				metrics.submitted.increment();
+				return;
+			}
+			// the partition retired but may still process its last items - a new partition must not
+			// be created before it's removed, or items with the same key could be processed concurrently
+			if (Thread.interrupted())
+				throw new InterruptedException();
+			Thread.yield();
+		}
+	}
+
+	/**
+	 * Forks a subtask per created partition until interrupted and then cancels all partitions.
+	 */
+	public Void serve() throws InterruptedException {
+		try (var scope = StructuredTaskScope.open(StructuredTaskScope.Joiner.awaitAll())) {
+			try {
+				while (true) {
+					var partition = created.take();
+					scope.fork(partition::drain);
+				}
+			} finally {
+				// only reached when interrupted - closing the scope cancels the partitions
+				Scopes.abandon(scope);
+			}
+		}
+	}
+
+	private final class Partition {
+
+		private static final int RETIRED = -1;
+
+		private final int index;
+		private final BlockingQueue<Item<K, T>> items;
+		// the number of threads that are putting items into the queue or `RETIRED`
+		private final AtomicInteger producers;
+		// only accessed by the draining thread
+		private final Map<K, Integer> keyCounts;
+		private long intervalStart;
+		private int intervalItems;
+
+		private Partition(int index) {
+			this.index = index;
+			this.items = new LinkedBlockingQueue<>(partitionCapacity);
+			this.producers = new AtomicInteger();
+			this.keyCounts = new HashMap<>();
+		}
+
+		/**
+		 * @return {@code false} if the partition retired
+		 */
+		private boolean put(K key, T item) throws InterruptedException {
+			while (true) {
+				var current = producers.get();
+				if (current == RETIRED)
+					return false;
+				if (producers.compareAndSet(current, current + 1))
+					break;
+			}
+			try {
+				items.put(new Item<>(key, item));
+				return true;
+			} finally {
+				producers.decrementAndGet();
+			}
+		}
+
+		private Void drain() throws InterruptedException {
+			intervalStart = System.nanoTime();
+			try {
+				while (true) {
+					var item = items.poll(idleTimeoutInNanos, TimeUnit.NANOSECONDS);
+					if (item == null) {
+						if (tryRetire())
+							return null;
+						continue;
+					}
+					process(item);
+				}
+			} finally {
+				// also when interrupted (or worse), so producers don't wait for a partition that's gone
+				if (partitions.compareAndSet(index, this, null))
+					metrics.activePartitions.decrement();
+			}
+		}
+
+		private void process(Item<K, T> item) throws InterruptedException {
+			try {
+				handler.accept(item.item());
+			} catch (InterruptedException ex) {
+				throw ex;
+			} catch (Exception ex) {
+				// ending the subtask would leave this partition's producers blocked forever
+				metrics.failed.increment();
+				LOG.error("Processing an item with key {} in partition {} failed", item.key(), index, ex);
+			}
+			metrics.processed.increment();
+			detectHotKey(item.key());
+		}
+
+		private boolean tryRetire() throws InterruptedException {
+			// once no producer is putting, none can start
+			if (!producers.compareAndSet(0, RETIRED))
+				return false;
+			// producers may have put items since the queue was last polled
+			Item<K, T> item;
+			while ((item = items.poll()) != null)
+				process(item);
+			// `drain` removes the partition
+			metrics.retiredPartitions.increment();
+			return true;
+		}
+
+		private void detectHotKey(K key) {
+			keyCounts.merge(key, 1, Integer::sum);
+			intervalItems++;
+			var now = System.nanoTime();
+			if (now - intervalStart < HOT_KEY_INTERVAL.toNanos())
+				return;
+
+			if (intervalItems >= HOT_KEY_MIN_ITEMS)
+				keyCounts.forEach((candidate, count) -> {
+					if (count * 2 > intervalItems) {
+						metrics.hotKeys.increment();
+						LOG.warn("Hot key {} in partition {}: {} of {} items in last {}ms",
+								candidate, index, count, intervalItems, HOT_KEY_INTERVAL.toMillis());
+					}
+				});
+			keyCounts.clear();
+			intervalItems = 0;
+			intervalStart = now;
+		}
+
+	}
+
+	private record Item<K, T>(K key, T item) { }
+
+	/**
+	 * Metrics of a keyed executor.
+	 */
+	public interface KeyedExecutorMXBean {
+
+		long getActivePartitions();
+
+		long getRetiredPartitions();
+
+		long getSubmittedItems();
+
+		long getProcessedItems();
+
+		long getFailedItems();
+
+		long getQueuedItems();
+
+		long getHotKeyDetections();
+
+	}
+
+	private static final class Metrics implements KeyedExecutorMXBean {
+
+		private final LongAdder activePartitions = new LongAdder();
+		private final LongAdder retiredPartitions = new LongAdder();
+		private final LongAdder submitted = new LongAdder();
+		private final LongAdder processed = new LongAdder();
+		private final LongAdder failed = new LongAdder();
+		private final LongAdder hotKeys = new LongAdder();
+
+		private static Metrics register(String name) {
+			var metrics = new Metrics();
+			try {
+				var objectName = new ObjectName("dev.nipafx.scia:type=KeyedExecutor,name=" + ObjectName.quote(name));
+				ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName);
+			} catch (JMException ex) {
+				LOG.warn("Metrics for keyed executor {} not registered", name, ex);
+			}
+			return metrics;
+		}
+
+		@Override
+		public long getActivePartitions() {
+			return activePartitions.sum();
+		}
+
+		@Override
+		public long getRetiredPartitions() {
+			return retiredPartitions.sum();
+		}
+
+		@Override
+		public long getSubmittedItems() {
+			return submitted.sum();
+		}
+
+		@Override
+		public long getProcessedItems() {
+			return processed.sum();
+		}
+
+		@Override
+		public long getFailedItems() {
+			return failed.sum();
+		}
+
+		@Override
+		public long getQueuedItems() {
+			return submitted.sum() - processed.sum();
+		}
+
+		@Override
+		public long getHotKeyDetections() {
+			return hotKeys.sum();
+		}
+
+	}
+
+}
@@ -1,20 +1,30 @@
 package dev.nipafx.scia.queue;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 public class MultiplexingQueue<T> implements MessageQueue<T> {
 
 	private final AtomicReference<T> recentValue;
 	private final Set<BlockingQueue<T>> channels;
 	private final ThreadLocal<BlockingQueue<T>> localChannel;
+	private final Predicate<T> publish;
 
 	public MultiplexingQueue(T initialValue) {
+		this(initialValue, _ -> true);
+	}
+
+	private MultiplexingQueue(T initialValue, Predicate<T> publish) {
 		this.recentValue = new AtomicReference<>(initialValue);
 		this.channels = Collections.newSetFromMap(new ConcurrentHashMap<>());
 		this.localChannel = ThreadLocal.withInitial(() -> {
@@ -22,6 +32,52 @@ public class MultiplexingQueue<T> implements MessageQueue<T> {
 			channels.add(localQueue);
 			return localQueue;
 		});
+		this.publish = publish;
+	}
+
+	/**
+	 * Creates a queue that skips values that are equal to the previous one.
+	 */
+	public static <T> MultiplexingQueue<T> distinctUntilChanged(T initialValue) {
+		return distinctUntilChanged(initialValue, Function.identity());
+	}
+
+	/**
+	 * Creates a queue that skips values whose key (e.g. a cheap content hash) is equal to that of the previous one.
+	 */
+	public static <T> MultiplexingQueue<T> distinctUntilChanged(T initialValue, Function<? super T, ?> key) {
+		var recentKey = new AtomicReference<Object>(key.apply(initialValue));
+		return new MultiplexingQueue<>(initialValue, value -> {
+			var newKey = key.apply(value);
+			return !Objects.equals(recentKey.getAndSet(newKey), newKey);
+		});
+	}
+
+	/**
+	 * Creates a queue that skips values whose key was already published during the preceding {@code window}
+	 * (useful for streams that interleave updates for different keys).
+	 */
+	public static <T> MultiplexingQueue<T> distinctWithin(T initialValue, Function<? super T, ?> key, Duration window) {
+		var windowInNanos = window.toNanos();
+		var publishedAt = new ConcurrentHashMap<Object, Long>();
+		var lastCleanup = new AtomicLong(System.nanoTime());
+		return new MultiplexingQueue<>(initialValue, value -> {
+			var now = System.nanoTime();
+			// once per window, forget keys that left it, so the map doesn't grow without bounds
+			var cleanup = lastCleanup.get();
+			if (now - cleanup >= windowInNanos && lastCleanup.compareAndSet(cleanup, now))
+				publishedAt.values().removeIf(time -> now - time >= windowInNanos);
+
+			// check and update atomically, so of two concurrent values with the same key, only one is published
+			var published = new boolean[1];
+			publishedAt.compute(key.apply(value), (_, previous) -> {
+				if (previous != null && now - previous < windowInNanos)
+					return previous;
+				published[0] = true;
+				return now;
+			});
+			return published[0];
+		});
 	}
 
 	@Override
@@ -31,6 +87,9 @@ public class MultiplexingQueue<T> implements MessageQueue<T> {
 
 	@Override
 	public void accept(T value) throws InterruptedException {
+		if (!publish.test(value))
+			return;
+
 		channels.forEach(queue -> {
 			try {
 				queue.put(value);
@@ -0,0 +1,204 @@
+package dev.nipafx.scia.queue;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.VarHandle;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * A bounded queue in a memory-mapped file (e.g. in {@code /dev/shm}) that hands messages from one writer
+ * to competing readers - each message is read once - in the same or in other processes.
+ *
+ * <p>The file holds a ring of slots, each with a sequence number that tells writer and readers whether
+ * the slot is free or holds a message (the algorithm is Dmitry Vyukov's bounded MPMC queue, reduced to
+ * a single producer). Readers claim messages by advancing a shared head with CAS. Since waiting
+ * can't be signaled across processes, waiting threads spin for a while and then park for increasing
+ * durations of up to {@value #MAX_PARK_NANOS}ns.
+ *
+ * <p>Create the queue in the writer process with {@link #create(Path, int, int, Codec) create}
+ * and {@link #open(Path, Codec) open} it in the reader processes. Only one thread may write at a time.
+ * {@link #close() Closing} the queue unmaps the file, after which no thread may use it.
+ */
+public class SharedMemoryQueue<T> implements MessageQueue<T>, AutoCloseable {
+
+	private static final long MAGIC = 0x5C1A_5E0_0001L;
+	private static final VarHandle LONG = ValueLayout.JAVA_LONG.varHandle();
+
+	// header - the cursors are on their own cache lines, so writer and readers don't falsely share them
+	private static final long MAGIC_OFFSET = 0;
+	private static final long CAPACITY_OFFSET = 8;
+	private static final long MAX_MESSAGE_SIZE_OFFSET = 12;
+	private static final long TAIL_OFFSET = 64;
+	private static final long HEAD_OFFSET = 128;
+	private static final long HEADER_SIZE = 192;
+
+	// slot - sequence, message length, message; each slot starts on a new cache line
+	private static final long SEQUENCE_OFFSET = 0;
+	private static final long LENGTH_OFFSET = 8;
+	private static final long MESSAGE_OFFSET = 16;
+	private static final long CACHE_LINE = 64;
+
+	private static final int SPIN_ROUNDS = 1_000;
+	private static final long MAX_PARK_NANOS = 100_000;
+
+	private final Arena arena;
+	private final MemorySegment segment;
+	private final Codec<T> codec;
+	private final int capacity;
+	private final int maxMessageSize;
+	private final long slotSize;
+	// views of the slots' message bytes - a slot is only accessed by the thread that owns it
+	// according to its sequence, which orders the accesses to the views as well
+	private final ByteBuffer[] messages;
+
+	private SharedMemoryQueue(Arena arena, MemorySegment segment, Codec<T> codec) {
+		this.arena = arena;
+		this.segment = segment;
+		this.codec = codec;
+		this.capacity = segment.get(ValueLayout.JAVA_INT, CAPACITY_OFFSET);
+		this.maxMessageSize = segment.get(ValueLayout.JAVA_INT, MAX_MESSAGE_SIZE_OFFSET);
+		this.slotSize = slotSize(maxMessageSize);
+		this.messages = new ByteBuffer[capacity];
+		for (int i = 0; i < capacity; i++)
+			messages[i] = segment.asSlice(slotOffset(i) + MESSAGE_OFFSET, maxMessageSize).asByteBuffer();
+	}
+
+	/**
+	 * Creates the file (replacing an existing one) and initializes an empty queue in it.
+	 *
+	 * @param capacity the number of slots (a power of two)
+	 * @param maxMessageSize the maximum size of an encoded message in bytes
+	 */
+	public static <T> SharedMemoryQueue<T> create(Path file, int capacity, int maxMessageSize, Codec<T> codec)
+			throws IOException {
+		if (capacity <= 0 || Integer.bitCount(capacity) != 1)
+			throw new IllegalArgumentException("Capacity must be a power of two");
+		if (maxMessageSize <= 0)
+			throw new IllegalArgumentException("Maximum message size must be positive");
+
+		var arena = Arena.ofShared();
+		try (var channel = FileChannel.open(file, CREATE, TRUNCATE_EXISTING, READ, WRITE)) {
+			var segment = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE + capacity * slotSize(maxMessageSize), arena);
+			segment.set(ValueLayout.JAVA_INT, CAPACITY_OFFSET, capacity);
+			segment.set(ValueLayout.JAVA_INT, MAX_MESSAGE_SIZE_OFFSET, maxMessageSize);
+			LONG.set(segment, TAIL_OFFSET, 0L);
+			LONG.set(segment, HEAD_OFFSET, 0L);
+			// slot `i` is free for the message at position `i`
+			for (long i = 0; i < capacity; i++)
+				LONG.set(segment, HEADER_SIZE + i * slotSize(maxMessageSize) + SEQUENCE_OFFSET, i);
+			// readers check the magic number last, so they see a fully initialized queue
+			LONG.setRelease(segment, MAGIC_OFFSET, MAGIC);
+			return new SharedMemoryQueue<>(arena, segment, codec);
+		} catch (IOException | RuntimeException ex) {
+			arena.close();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Opens a queue that was {@link #create(Path, int, int, Codec) created} by another process.
+	 */
+	public static <T> SharedMemoryQueue<T> open(Path file, Codec<T> codec) throws IOException {
+		var arena = Arena.ofShared();
+		try (var channel = FileChannel.open(file, READ, WRITE)) {
+			var segment = channel.map(MapMode.READ_WRITE, 0, channel.size(), arena);
+			if (segment.byteSize() < HEADER_SIZE || (long) LONG.getAcquire(segment, MAGIC_OFFSET) != MAGIC)
+				throw new IllegalArgumentException("File %s doesn't contain an initialized queue".formatted(file));
+			return new SharedMemoryQueue<>(arena, segment, codec);
+		} catch (IOException | RuntimeException ex) {
+			arena.close();
+			throw ex;
+		}
+	}
+
+	private static long slotSize(int maxMessageSize) {
+		var size = MESSAGE_OFFSET + maxMessageSize;
+		return (size + CACHE_LINE - 1) / CACHE_LINE * CACHE_LINE;
+	}
+
+	private long slotOffset(long position) {
+		return HEADER_SIZE + (position & (capacity - 1)) * slotSize;
+	}
+
+	/**
+	 * Writes the message into the next slot, waiting for it to become free if the queue is full.
+	 *
+	 * @throws IllegalArgumentException if the encoded message is larger than the maximum message size
+	 */
+	@Override
+	public void accept(T message) throws InterruptedException {
+		// only the writer changes the tail, so a plain read sees its own latest write
+		var position = (long) LONG.get(segment, TAIL_OFFSET);
+		var slot = slotOffset(position);
+		var idleRounds = 0;
+		while ((long) LONG.getAcquire(segment, slot + SEQUENCE_OFFSET) != position)
+			idleRounds = idle(idleRounds);
+
+		var buffer = messages[(int) (position & (capacity - 1))].clear();
+		try {
+			codec.encode(message, buffer);
+		} catch (BufferOverflowException ex) {
+			throw new IllegalArgumentException("Message exceeds maximum size of %d bytes".formatted(maxMessageSize), ex);
+		}
+		segment.set(ValueLayout.JAVA_INT, slot + LENGTH_OFFSET, buffer.position());
+		LONG.set(segment, TAIL_OFFSET, position + 1);
+		// publishes the message to readers
+		LONG.setRelease(segment, slot + SEQUENCE_OFFSET, position + 1);
+	}
+
+	/**
+	 * Reads the next message, waiting for one if the queue is empty.
+	 */
+	@Override
+	public T get() throws InterruptedException {
+		var idleRounds = 0;
+		while (true) {
+			var position = (long) LONG.getVolatile(segment, HEAD_OFFSET);
+			var slot = slotOffset(position);
+			var sequence = (long) LONG.getAcquire(segment, slot + SEQUENCE_OFFSET);
+			if (sequence == position + 1) {
+				// the message is published - claim it (or retry right away if another reader was faster)
+				if (LONG.compareAndSet(segment, HEAD_OFFSET, position, position + 1)) {
+					var length = segment.get(ValueLayout.JAVA_INT, slot + LENGTH_OFFSET);
+					var message = codec.decode(messages[(int) (position & (capacity - 1))].clear().limit(length));
+					// frees the slot for the message one lap later
+					LONG.setRelease(segment, slot + SEQUENCE_OFFSET, position + capacity);
+					return message;
+				}
+			} else if (sequence <= position)
+				// the writer hasn't published a message at this position yet
+				idleRounds = idle(idleRounds);
+		}
+	}
+
+	private static int idle(int idleRounds) throws InterruptedException {
+		if (Thread.interrupted())
+			throw new InterruptedException();
+		if (idleRounds < SPIN_ROUNDS)
+			Thread.onSpinWait();
+		else
+			LockSupport.parkNanos(Math.min(MAX_PARK_NANOS, 1L << Math.min(idleRounds - SPIN_ROUNDS, 20)));
+		return idleRounds + 1;
+	}
+
+	/**
+	 * Unmaps the file (without deleting it).
+	 */
+	@Override
+	public void close() {
+		arena.close();
+	}
+
+}
@@ -0,0 +1,113 @@
+package dev.nipafx.scia.queue;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static dev.nipafx.scia.queue.SocketSender.FRAME_HEADER_SIZE;
+
+/**
+ * The receiving end of a bridge from a {@link SocketSender} in another process: it hands the received messages
+ * to a local consumer, e.g. a {@link BlockingMessageQueue}.
+ *
+ * <p>The receiver initially grants the sender credits for {@code window} messages and grants another one for
+ * each message the local consumer accepted, so the sender never sends more than the receiver can take.
+ * Reads are as large as the buffer allows, so one read usually picks up several frames.
+ */
+public class SocketReceiver<T> {
+
+	private final Path socket;
+	private final Codec<T> codec;
+	private final int window;
+	private final InterruptableConsumer<? super T> target;
+
+	// only used by `serve`
+	private final ByteBuffer buffer;
+	private final ByteBuffer credits;
+
+	/**
+	 * @param maxMessageSize the maximum size of an encoded message in bytes (must match the sender's)
+	 * @param maxBatchSize the maximum number of messages per frame (must match the sender's)
+	 * @param window how many messages the sender may send before the local consumer accepted them
+	 */
+	public SocketReceiver(
+			Path socket, Codec<T> codec, int maxMessageSize, int maxBatchSize, int window,
+			InterruptableConsumer<? super T> target) {
+		if (maxMessageSize <= 0 || maxBatchSize <= 0 || window <= 0)
+			throw new IllegalArgumentException("Maximum message and batch size as well as window must be positive");
+		this.socket = socket;
+		this.codec = codec;
+		this.window = window;
+		this.target = target;
+
+		this.buffer = ByteBuffer.allocateDirect(FRAME_HEADER_SIZE + maxBatchSize * (Integer.BYTES + maxMessageSize)).flip();
+		this.credits = ByteBuffer.allocateDirect(Integer.BYTES);
+	}
+
+	/**
+	 * Listens on the socket file (replacing an existing one), accepts one sender, and hands its messages
+	 * to the local consumer until the sender disconnects or the current thread is interrupted.
+	 */
+	public Void serve() throws IOException, InterruptedException {
+		Files.deleteIfExists(socket);
+		try (var server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+			server.bind(UnixDomainSocketAddress.of(socket));
+			try (var channel = server.accept()) {
+				grant(channel, window);
+				while (fill(channel, FRAME_HEADER_SIZE)) {
+					var frameLength = buffer.getInt(buffer.position());
+					var messageCount = buffer.getInt(buffer.position() + Integer.BYTES);
+					if (FRAME_HEADER_SIZE + frameLength > buffer.capacity())
+						throw new IOException("Frame of %d bytes exceeds buffer".formatted(frameLength));
+					if (!fill(channel, FRAME_HEADER_SIZE + frameLength))
+						throw new EOFException("Sender closed the connection mid-frame");
+
+					buffer.position(buffer.position() + FRAME_HEADER_SIZE);
+					for (int i = 0; i < messageCount; i++) {
+						var length = buffer.getInt();
+						var message = codec.decode(buffer.slice(buffer.position(), length));
+						buffer.position(buffer.position() + length);
+						target.accept(message);
+					}
+					grant(channel, messageCount);
+				}
+				return null;
+			}
+		} finally {
+			Files.deleteIfExists(socket);
+		}
+	}
+
+	/**
+	 * Reads until the buffer holds at least {@code bytes} bytes.
+	 *
+	 * @return {@code false} if the sender disconnected before any of them arrived
+	 */
+	private boolean fill(SocketChannel channel, int bytes) throws IOException {
+		var empty = !buffer.hasRemaining();
+		while (buffer.remaining() < bytes) {
+			buffer.compact();
+			var read = channel.read(buffer);
+			buffer.flip();
+			if (read < 0) {
+				if (empty && !buffer.hasRemaining())
+					return false;
+				throw new EOFException("Sender closed the connection mid-frame");
+			}
+		}
+		return true;
+	}
+
+	private void grant(SocketChannel channel, int count) throws IOException {
+		credits.clear().putInt(count).flip();
+		while (credits.hasRemaining())
+			channel.write(credits);
+	}
+
+}
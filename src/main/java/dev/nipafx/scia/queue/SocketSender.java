@@ -0,0 +1,142 @@
+package dev.nipafx.scia.queue;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * The sending end of a bridge that carries messages over a Unix domain socket to a {@link SocketReceiver}
+ * in another process.
+ *
+ * <p>{@link #accept(Object) accept} puts messages into a small local buffer and {@link #serve()} (which needs
+ * to be forked) sends whatever accumulated there as one frame, so messages are batched when they arrive faster
+ * than they can be sent without delaying them when they don't. Each frame is written with a single gathering
+ * write of header and body.
+ *
+ * <p>The receiver grants credits for as many messages as it's willing to take and grants more as it hands
+ * messages on. Without credits, the sender waits, its local buffer fills up, and {@code accept} blocks.
+ */
+public class SocketSender<T> implements InterruptableConsumer<T> {
+
+	// frame: body length, message count, and then messages, each as length and bytes
+	static final int FRAME_HEADER_SIZE = 2 * Integer.BYTES;
+
+	private final SocketChannel channel;
+	private final Codec<T> codec;
+	private final int maxMessageSize;
+	private final int maxBatchSize;
+	private final BlockingQueue<T> pending;
+	private final List<T> batch;
+
+	// only used by `serve`
+	private final ByteBuffer header;
+	private final ByteBuffer body;
+	private final ByteBuffer[] frame;
+	private final ByteBuffer credits;
+	private long availableCredits;
+
+	private SocketSender(SocketChannel channel, Codec<T> codec, int maxMessageSize, int maxBatchSize) {
+		this.channel = channel;
+		this.codec = codec;
+		this.maxMessageSize = maxMessageSize;
+		this.maxBatchSize = maxBatchSize;
+		this.pending = new ArrayBlockingQueue<>(maxBatchSize);
+		this.batch = new ArrayList<>(maxBatchSize);
+
+		this.header = ByteBuffer.allocateDirect(FRAME_HEADER_SIZE);
+		this.body = ByteBuffer.allocateDirect(maxBatchSize * (Integer.BYTES + maxMessageSize));
+		this.frame = new ByteBuffer[] { header, body };
+		this.credits = ByteBuffer.allocateDirect(64 * Integer.BYTES).flip();
+		this.availableCredits = 0;
+	}
+
+	/**
+	 * Connects to a {@link SocketReceiver} that listens on the given socket file.
+	 *
+	 * @param maxMessageSize the maximum size of an encoded message in bytes (must match the receiver's)
+	 * @param maxBatchSize the maximum number of messages per frame (must match the receiver's)
+	 */
+	public static <T> SocketSender<T> connect(Path socket, Codec<T> codec, int maxMessageSize, int maxBatchSize)
+			throws IOException {
+		if (maxMessageSize <= 0 || maxBatchSize <= 0)
+			throw new IllegalArgumentException("Maximum message and batch size must be positive");
+		var channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+		try {
+			channel.connect(UnixDomainSocketAddress.of(socket));
+			return new SocketSender<>(channel, codec, maxMessageSize, maxBatchSize);
+		} catch (IOException | RuntimeException ex) {
+			channel.close();
+			throw ex;
+		}
+	}
+
+	@Override
+	public void accept(T message) throws InterruptedException {
+		pending.put(message);
+	}
+
+	/**
+	 * Sends buffered messages until interrupted and then closes the connection.
+	 */
+	public Void serve() throws IOException, InterruptedException {
+		try (channel) {
+			while (true) {
+				batch.add(pending.take());
+				pending.drainTo(batch, maxBatchSize - 1);
+				var sent = 0;
+				while (sent < batch.size()) {
+					awaitCredits();
+					var count = (int) Math.min(availableCredits, batch.size() - sent);
+					writeFrame(batch.subList(sent, sent + count));
+					availableCredits -= count;
+					sent += count;
+				}
+				batch.clear();
+			}
+		}
+	}
+
+	private void awaitCredits() throws IOException {
+		while (availableCredits == 0) {
+			if (credits.remaining() < Integer.BYTES) {
+				credits.compact();
+				if (channel.read(credits) < 0)
+					throw new EOFException("Receiver closed the connection");
+				credits.flip();
+			}
+			while (credits.remaining() >= Integer.BYTES)
+				availableCredits += credits.getInt();
+		}
+	}
+
+	private void writeFrame(List<T> messages) throws IOException {
+		body.clear();
+		for (T message : messages) {
+			var lengthPosition = body.position();
+			body.position(lengthPosition + Integer.BYTES);
+			body.limit(body.position() + maxMessageSize);
+			try {
+				codec.encode(message, body);
+			} catch (BufferOverflowException ex) {
+				throw new IllegalArgumentException("Message exceeds maximum size of %d bytes".formatted(maxMessageSize), ex);
+			}
+			body.putInt(lengthPosition, body.position() - lengthPosition - Integer.BYTES);
+			body.limit(body.capacity());
+		}
+		body.flip();
+		header.clear().putInt(body.remaining()).putInt(messages.size()).flip();
+
+		while (body.hasRemaining())
+			channel.write(frame);
+	}
+
+}
@@ -0,0 +1,168 @@
+package dev.nipafx.scia.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of concurrent calls to a limit that adapts to the observed latency and errors.
+ *
+ * <p>Calls that would exceed the limit wait in the calling (virtual) thread. Each completed call is a sample
+ * that the {@link Algorithm} uses to raise the limit while the downstream keeps up and to lower it
+ * as soon as latency increases or errors occur.
+ */
+public class AdaptiveLimiter {
+
+	private final Algorithm algorithm;
+	private final int minLimit;
+	private final int maxLimit;
+
+	private final ReentrantLock lock;
+	private final Condition belowLimit;
+	// guarded by `lock`
+	private double limit;
+	private int inFlight;
+	private long minLatencyInNanos;
+
+	public AdaptiveLimiter(Algorithm algorithm, int initialLimit, int minLimit, int maxLimit) {
+		if (minLimit <= 0 || minLimit > initialLimit || initialLimit > maxLimit)
+			throw new IllegalArgumentException("Limits must be 0 < min <= initial <= max");
+		this.algorithm = algorithm;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+
+		this.lock = new ReentrantLock();
+		this.belowLimit = lock.newCondition();
+		this.limit = initialLimit;
+		this.inFlight = 0;
+		this.minLatencyInNanos = Long.MAX_VALUE;
+	}
+
+	/**
+	 * Waits until the number of calls in flight is below the limit and then executes the task.
+	 *
+	 * @throws InterruptedException if the current thread was interrupted while waiting
+	 * @throws Exception if the task threw an exception
+	 */
+	public <T> T call(Callable<T> task) throws Exception {
+		acquire();
+		var start = System.nanoTime();
+		try {
+			var result = task.call();
+			release(System.nanoTime() - start, false);
+			return result;
+		} catch (InterruptedException | Error ex) {
+			// the call was canceled (or the JVM is in trouble), which says nothing about the downstream
+			release(-1, false);
+			throw ex;
+		} catch (Exception ex) {
+			release(System.nanoTime() - start, true);
+			throw ex;
+		}
+	}
+
+	private void acquire() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (inFlight >= (int) limit)
+				belowLimit.await();
+			inFlight++;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void release(long latencyInNanos, boolean failed) {
+		lock.lock();
+		try {
+			inFlight--;
+			if (latencyInNanos >= 0) {
+				minLatencyInNanos = Math.min(minLatencyInNanos, latencyInNanos);
+				var newLimit = switch (algorithm) {
+					case Algorithm.Aimd aimd -> aimd.update(limit, latencyInNanos, failed);
+					case Algorithm.Vegas vegas -> vegas.update(limit, latencyInNanos, minLatencyInNanos, failed);
+				};
+				limit = Math.clamp(newLimit, minLimit, maxLimit);
+			}
+			belowLimit.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int limit() {
+		lock.lock();
+		try {
+			return (int) limit;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int inFlight() {
+		lock.lock();
+		try {
+			return inFlight;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public sealed interface Algorithm {
+
+		/**
+		 * Additive increase (by one per limit's worth of successful calls), multiplicative decrease
+		 * (by {@code backoffRatio}) on errors or calls slower than {@code maxLatency}.
+		 */
+		static Algorithm aimd(Duration maxLatency, double backoffRatio) {
+			return new Aimd(maxLatency.toNanos(), backoffRatio);
+		}
+
+		/**
+		 * Estimates the number of queued calls from the ratio of the lowest observed latency to the current one
+		 * and increases the limit while fewer than {@code alpha} calls are queued, decreases it when more than
+		 * {@code beta} are.
+		 */
+		static Algorithm vegas(int alpha, int beta) {
+			return new Vegas(alpha, beta);
+		}
+
+		record Aimd(long maxLatencyInNanos, double backoffRatio) implements Algorithm {
+
+			public Aimd {
+				if (backoffRatio <= 0 || backoffRatio >= 1)
+					throw new IllegalArgumentException("Backoff ratio must be in (0, 1)");
+			}
+
+			private double update(double limit, long latencyInNanos, boolean failed) {
+				if (failed || latencyInNanos > maxLatencyInNanos)
+					return limit * backoffRatio;
+				return limit + 1 / limit;
+			}
+
+		}
+
+		record Vegas(int alpha, int beta) implements Algorithm {
+
+			public Vegas {
+				if (alpha <= 0 || alpha >= beta)
+					throw new IllegalArgumentException("Thresholds must be 0 < alpha < beta");
+			}
+
+			private double update(double limit, long latencyInNanos, long minLatencyInNanos, boolean failed) {
+				if (failed)
+					return limit - 1;
+				var queued = limit * (1 - (double) minLatencyInNanos / Math.max(latencyInNanos, 1));
+				if (queued < alpha)
+					return limit + 1;
+				if (queued > beta)
+					return limit - 1;
+				return limit;
+			}
+
+		}
+
+	}
+
+}
@@ -0,0 +1,163 @@
+package dev.nipafx.scia.resilience;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the number of concurrent calls per downstream ("partition") with a fair semaphore.
+ *
+ * <p>Unlike Resilience4j's {@code ThreadPoolBulkhead}, this doesn't hand calls to a platform thread pool.
+ * Instead, the calling (virtual) thread waits for a permit - {@link Semaphore} parks without pinning
+ * the carrier, so waiting is cheap. Each partition is created on first use and exports its usage
+ * as a {@link PartitionMXBean} named {@code dev.nipafx.scia:type=Bulkhead,name=$name,partition=$partition}.
+ */
+public class Bulkhead {
+
+	private static final Logger LOG = LoggerFactory.getLogger(Bulkhead.class);
+
+	private final String name;
+	private final int maxConcurrentCalls;
+	private final Duration maxWait;
+	private final ConcurrentMap<String, Partition> partitions;
+
+	public Bulkhead(String name, int maxConcurrentCalls, Duration maxWait) {
+		if (maxConcurrentCalls <= 0)
+			throw new IllegalArgumentException("Maximum number of concurrent calls must be positive");
+		this.name = name;
+		this.maxConcurrentCalls = maxConcurrentCalls;
+		this.maxWait = maxWait;
+		this.partitions = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Waits at most the configured time for a permit of the given partition and then executes the task.
+	 *
+	 * @throws FullException if no permit became available in time (the task is not executed)
+	 * @throws InterruptedException if the current thread was interrupted while waiting for a permit
+	 * @throws Exception if the task threw an exception
+	 */
+	public <T> T call(String partition, Callable<T> task) throws Exception {
+		return partitions
+				.computeIfAbsent(partition, this::createPartition)
+				.call(task);
+	}
+
+	private Partition createPartition(String partition) {
+		var created = new Partition(partition);
+		try {
+			var objectName = new ObjectName("dev.nipafx.scia:type=Bulkhead,name=%s,partition=%s"
+					.formatted(ObjectName.quote(name), ObjectName.quote(partition)));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(created, objectName);
+		} catch (JMException ex) {
+			LOG.warn("Metrics for bulkhead {} partition {} not registered", name, partition, ex);
+		}
+		return created;
+	}
+
+	/**
+	 * Usage metrics of a bulkhead partition.
+	 */
+	public interface PartitionMXBean {
+
+		int getMaxConcurrentCalls();
+
+		int getAvailablePermits();
+
+		int getWaitingCalls();
+
+		long getPermittedCalls();
+
+		long getRejectedCalls();
+
+		long getTotalWaitTimeInMs();
+
+	}
+
+	private final class Partition implements PartitionMXBean {
+
+		private final String name;
+		private final Semaphore permits;
+		private final LongAdder permitted;
+		private final LongAdder rejected;
+		private final LongAdder waitTimeInNanos;
+
+		private Partition(String name) {
+			this.name = name;
+			this.permits = new Semaphore(maxConcurrentCalls, true);
+			this.permitted = new LongAdder();
+			this.rejected = new LongAdder();
+			this.waitTimeInNanos = new LongAdder();
+		}
+
+		private <T> T call(Callable<T> task) throws Exception {
+			var waitStart = System.nanoTime();
+			var acquired = permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+			waitTimeInNanos.add(System.nanoTime() - waitStart);
+			if (!acquired) {
+				rejected.increment();
+				throw new FullException(Bulkhead.this.name, name);
+			}
+
+			permitted.increment();
+			try {
+				return task.call();
+			} finally {
+				permits.release();
+			}
+		}
+
+		@Override
+		public int getMaxConcurrentCalls() {
+			return maxConcurrentCalls;
+		}
+
+		@Override
+		public int getAvailablePermits() {
+			return permits.availablePermits();
+		}
+
+		@Override
+		public int getWaitingCalls() {
+			return permits.getQueueLength();
+		}
+
+		@Override
+		public long getPermittedCalls() {
+			return permitted.sum();
+		}
+
+		@Override
+		public long getRejectedCalls() {
+			return rejected.sum();
+		}
+
+		@Override
+		public long getTotalWaitTimeInMs() {
+			return TimeUnit.NANOSECONDS.toMillis(waitTimeInNanos.sum());
+		}
+
+	}
+
+	/**
+	 * Thrown when a call is rejected because no permit became available in time.
+	 */
+	public static final class FullException extends RuntimeException {
+
+		private FullException(String bulkhead, String partition) {
+			super("Bulkhead %s is full for partition %s".formatted(bulkhead, partition));
+		}
+
+	}
+
+}
@@ -0,0 +1,271 @@
+package dev.nipafx.scia.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.StructuredTaskScope.Subtask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A registry of circuit breakers, one per key (e.g. per downstream host or shard), so one failing
+ * downstream doesn't trip the circuit for all others.
+ *
+ * <p>Breakers are created on first use and evicted when they were unused for the idle timeout
+ * (unless they're half-open or still within their open duration).
+ * Each breaker's sliding window is a ring buffer of the last {@code windowSize} outcomes, stored as ints,
+ * plus a {@code long} that packs the number of recorded calls and failures, so recording a call costs
+ * four atomic operations. Because {@link #fork(StructuredTaskScope, String, Callable) fork} checks
+ * the breaker in the scope owner, calls to an open circuit don't even start a thread.
+ */
+public class KeyedCircuitBreaker {
+
+	private final int windowSize;
+	private final int minimumNumberOfCalls;
+	private final float failureRateThreshold;
+	private final long openDurationInNanos;
+	private final long idleTimeoutInNanos;
+
+	private final ConcurrentMap<String, Breaker> breakers;
+	private final AtomicLong lastEviction;
+
+	/**
+	 * @param failureRateThreshold the failure rate (between 0 and 1) at or above which a breaker opens
+	 */
+	public KeyedCircuitBreaker(
+			int windowSize, int minimumNumberOfCalls, float failureRateThreshold,
+			Duration openDuration, Duration idleTimeout) {
+		if (windowSize <= 0 || minimumNumberOfCalls <= 0 || minimumNumberOfCalls > windowSize)
+			throw new IllegalArgumentException("Sizes must be 0 < minimum number of calls <= window size");
+		if (failureRateThreshold <= 0 || failureRateThreshold > 1)
+			throw new IllegalArgumentException("Failure rate threshold must be in (0, 1]");
+		this.windowSize = windowSize;
+		this.minimumNumberOfCalls = minimumNumberOfCalls;
+		this.failureRateThreshold = failureRateThreshold;
+		this.openDurationInNanos = openDuration.toNanos();
+		this.idleTimeoutInNanos = idleTimeout.toNanos();
+
+		this.breakers = new ConcurrentHashMap<>();
+		this.lastEviction = new AtomicLong(System.nanoTime());
+	}
+
+	/**
+	 * Forks the task if the breaker for the given key permits it.
+	 *
+	 * @throws OpenException if the breaker is open (the task is not forked)
+	 */
+	public <T, U extends T> Subtask<U> fork(StructuredTaskScope<T, ?> scope, String key, Callable<? extends U> task)
+			throws OpenException {
+		var admission = acquire(key);
+		return scope.fork(() -> admission.record(task));
+	}
+
+	/**
+	 * Executes the task if the breaker for the given key permits it.
+	 *
+	 * @throws OpenException if the breaker is open (the task is not executed)
+	 * @throws Exception if the task threw an exception
+	 */
+	public <T> T call(String key, Callable<T> task) throws Exception {
+		return acquire(key).record(task);
+	}
+
+	public State state(String key) {
+		var breaker = breakers.get(key);
+		return breaker == null ? State.CLOSED : breaker.phase.get().state();
+	}
+
+	private Admission acquire(String key) throws OpenException {
+		var now = System.nanoTime();
+		evictIdleBreakers(now);
+		while (true) {
+			var breaker = breakers.computeIfAbsent(key, _ -> new Breaker());
+			if (!breaker.use(now)) {
+				// evicted concurrently - make sure it's gone and create a new one
+				breakers.remove(key, breaker);
+				continue;
+			}
+			var phase = breaker.tryAcquire(now);
+			if (phase == null)
+				throw new OpenException(key);
+			return new Admission(breaker, phase);
+		}
+	}
+
+	private void evictIdleBreakers(long now) {
+		var last = lastEviction.get();
+		if (now - last < idleTimeoutInNanos || !lastEviction.compareAndSet(last, now))
+			return;
+		breakers.values().removeIf(breaker -> breaker.tryEvict(now));
+	}
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	/**
+	 * A breaker's state and, if it was opened, when. Every transition creates a new instance, so an instance
+	 * identifies a phase of the breaker and a failed transition (a lost CAS) leaves no trace.
+	 */
+	private record Phase(State state, long openedAt) { }
+
+	/**
+	 * A call the breaker admitted in the given phase.
+	 */
+	private record Admission(Breaker breaker, Phase phase) {
+
+		<T> T record(Callable<T> task) throws Exception {
+			return breaker.record(phase, task);
+		}
+
+	}
+
+	private final class Breaker {
+
+		private static final long EVICTED = Long.MIN_VALUE;
+
+		private static final int EMPTY = 0;
+		private static final int SUCCESS = 1;
+		private static final int FAILURE = 2;
+
+		private static final long ONE_CALL = 1L << 32;
+		private static final long ONE_FAILURE = 1L;
+
+		// outcomes of calls that were admitted in an earlier phase are ignored (e.g. a slow call admitted
+		// before the breaker opened must not count as the trial call when it's half-open)
+		private final AtomicReference<Phase> phase;
+		// `EVICTED` once the breaker was evicted
+		private final AtomicLong lastUse;
+
+		private final AtomicIntegerArray outcomes;
+		private final AtomicLong nextOutcome;
+		// number of recorded calls in the upper 32 bits, number of failures in the lower 32
+		private final AtomicLong counts;
+
+		private Breaker() {
+			this.phase = new AtomicReference<>(new Phase(State.CLOSED, 0));
+			this.lastUse = new AtomicLong(System.nanoTime());
+			this.outcomes = new AtomicIntegerArray(windowSize);
+			this.nextOutcome = new AtomicLong();
+			this.counts = new AtomicLong();
+		}
+
+		/**
+		 * @return {@code false} if the breaker was evicted
+		 */
+		private boolean use(long now) {
+			while (true) {
+				var last = lastUse.get();
+				if (last == EVICTED)
+					return false;
+				if (lastUse.compareAndSet(last, now))
+					return true;
+			}
+		}
+
+		/**
+		 * @return the phase the call was admitted in or {@code null} if it was rejected
+		 */
+		private Phase tryAcquire(long now) {
+			var current = phase.get();
+			return switch (current.state()) {
+				case CLOSED -> current;
+				// only one trial call while half-open
+				case OPEN -> {
+					if (now - current.openedAt() < openDurationInNanos)
+						yield null;
+					var halfOpen = new Phase(State.HALF_OPEN, current.openedAt());
+					yield phase.compareAndSet(current, halfOpen) ? halfOpen : null;
+				}
+				case HALF_OPEN -> null;
+			};
+		}
+
+		private <T> T record(Phase admittedIn, Callable<T> task) throws Exception {
+			try {
+				var result = task.call();
+				onOutcome(admittedIn, SUCCESS);
+				return result;
+			} catch (InterruptedException ex) {
+				// cancellation says nothing about the downstream - give the next call a chance to try it
+				// (by keeping the time the breaker was opened)
+				if (admittedIn.state() == State.HALF_OPEN)
+					phase.compareAndSet(admittedIn, new Phase(State.OPEN, admittedIn.openedAt()));
+				throw ex;
+			} catch (Exception ex) {
+				onOutcome(admittedIn, FAILURE);
+				throw ex;
+			}
+		}
+
+		private void onOutcome(Phase admittedIn, int outcome) {
+			if (admittedIn.state() == State.HALF_OPEN) {
+				if (outcome == SUCCESS) {
+					// only the trial call gets here, so no other thread records outcomes until the breaker closes
+					resetWindow();
+					phase.compareAndSet(admittedIn, new Phase(State.CLOSED, 0));
+				} else {
+					open(admittedIn);
+				}
+				return;
+			}
+			if (phase.get() != admittedIn)
+				return;
+
+			var index = (int) (nextOutcome.getAndIncrement() % windowSize);
+			var previous = outcomes.getAndSet(index, outcome);
+			var delta = (previous == EMPTY ? ONE_CALL : 0)
+					+ (outcome == FAILURE ? ONE_FAILURE : 0)
+					- (previous == FAILURE ? ONE_FAILURE : 0);
+			var newCounts = delta == 0 ? counts.get() : counts.addAndGet(delta);
+
+			var calls = (int) (newCounts >>> 32);
+			var failures = (int) newCounts;
+			if (calls >= minimumNumberOfCalls && failures >= failureRateThreshold * calls)
+				open(admittedIn);
+		}
+
+		private void open(Phase from) {
+			phase.compareAndSet(from, new Phase(State.OPEN, System.nanoTime()));
+		}
+
+		private void resetWindow() {
+			for (int i = 0; i < windowSize; i++)
+				outcomes.set(i, EMPTY);
+			counts.set(0);
+		}
+
+		/**
+		 * Evicts the breaker if it was unused for the idle timeout and is closed or was open long enough
+		 * to admit a trial call (an idle half-open breaker is waiting for its trial call to complete).
+		 */
+		private boolean tryEvict(long now) {
+			var last = lastUse.get();
+			if (last == EVICTED)
+				return true;
+			var current = phase.get();
+			var evictable = switch (current.state()) {
+				case CLOSED -> true;
+				case OPEN -> now - current.openedAt() >= openDurationInNanos;
+				case HALF_OPEN -> false;
+			};
+			return evictable && now - last > idleTimeoutInNanos && lastUse.compareAndSet(last, EVICTED);
+		}
+
+	}
+
+	/**
+	 * Thrown when a call is rejected because its breaker is open.
+	 */
+	public static final class OpenException extends RuntimeException {
+
+		private OpenException(String key) {
+			super("Circuit breaker for %s is open".formatted(key));
+		}
+
+	}
+
+}
@@ -0,0 +1,99 @@
+package dev.nipafx.scia.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.StructuredTaskScope.Subtask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retries failed calls with exponential backoff and full jitter, i.e. before attempt {@code n}, it waits
+ * a random duration between zero and {@code min(maxDelay, baseDelay * 2^n)}.
+ *
+ * <p>To keep retries from amplifying overload, they are limited by a budget: Every first attempt deposits
+ * {@code retryRatio} tokens (up to a reserve of {@value MAX_BALANCE}), every retry withdraws one, and without
+ * a token, the call fails without retrying. In the long run, at most {@code retryRatio} of all calls are retries.
+ *
+ * <p>The calling thread waits between attempts. Virtual threads unmount while doing so, so they don't occupy
+ * a carrier and, as long as retries are {@link #fork(StructuredTaskScope, Callable) forked}, they don't hold up
+ * the scope owner. When the scope is canceled, the waiting thread is interrupted and pending retries abort.
+ * Interrupted calls are never retried.
+ */
+public class Retrier {
+
+	private static final long MAX_BALANCE = 10;
+	// the budget is tracked in thousandths of a token
+	private static final long ONE_TOKEN = 1_000;
+
+	private final int maxAttempts;
+	private final long baseDelayInNanos;
+	private final long maxDelayInNanos;
+	private final long depositPerCall;
+	private final AtomicLong balance;
+
+	public Retrier(int maxAttempts, Duration baseDelay, Duration maxDelay, double retryRatio) {
+		if (maxAttempts <= 0)
+			throw new IllegalArgumentException("Maximum number of attempts must be positive");
+		if (retryRatio < 0 || retryRatio > 1)
+			throw new IllegalArgumentException("Retry ratio must be in [0, 1]");
+		this.maxAttempts = maxAttempts;
+		this.baseDelayInNanos = baseDelay.toNanos();
+		this.maxDelayInNanos = maxDelay.toNanos();
+		this.depositPerCall = (long) (retryRatio * ONE_TOKEN);
+		this.balance = new AtomicLong(MAX_BALANCE * ONE_TOKEN);
+	}
+
+	/**
+	 * Forks a subtask that executes the task with retries.
+	 */
+	public <T, U extends T> Subtask<U> fork(StructuredTaskScope<T, ?> scope, Callable<? extends U> task) {
+		return scope.fork(() -> call(task));
+	}
+
+	/**
+	 * Executes the task with retries.
+	 *
+	 * @throws InterruptedException if the current thread was interrupted during an attempt or while waiting
+	 * @throws Exception the last attempt's exception if all attempts failed or the retry budget was exhausted
+	 */
+	public <T> T call(Callable<? extends T> task) throws Exception {
+		deposit();
+		var attempt = 0;
+		while (true) {
+			try {
+				return task.call();
+			} catch (InterruptedException ex) {
+				throw ex;
+			} catch (Exception ex) {
+				attempt++;
+				if (attempt >= maxAttempts || !withdraw())
+					throw ex;
+				TimeUnit.NANOSECONDS.sleep(backoff(attempt));
+			}
+		}
+	}
+
+	private long backoff(int attempt) {
+		var ceiling = baseDelayInNanos << Math.min(attempt, 30);
+		if (ceiling <= 0 || ceiling > maxDelayInNanos)
+			ceiling = maxDelayInNanos;
+		return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+	}
+
+	private void deposit() {
+		balance.accumulateAndGet(depositPerCall, (current, deposit) -> Math.min(current + deposit, MAX_BALANCE * ONE_TOKEN));
+	}
+
+	private boolean withdraw() {
+		while (true) {
+			var current = balance.get();
+			if (current < ONE_TOKEN)
+				return false;
+			if (balance.compareAndSet(current, current - ONE_TOKEN))
+				return true;
+		}
+	}
+
+}
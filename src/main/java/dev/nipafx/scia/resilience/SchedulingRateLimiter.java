@@ -0,0 +1,82 @@
+package dev.nipafx.scia.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.StructuredTaskScope.Subtask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A rate limiter that, instead of parking callers until a permit becomes available, computes up front
+ * when each caller may proceed.
+ *
+ * <p>It's a token bucket in the form of the generic cell rate algorithm: The only state is the
+ * <em>theoretical arrival time</em> of the next call (a {@code long} that is updated with CAS), which moves
+ * one emission interval ({@code period / permits}) into the future with every reservation. Calls may be up to
+ * {@code permits - 1} intervals ahead of it, which allows bursts of {@code permits} calls.
+ *
+ * <p>{@link #fork(StructuredTaskScope, Callable) Forking} waits for the reserved slot <em>before</em> forking
+ * the subtask, so no thread is started just to wait for a permit. Because only the scope owner can fork
+ * subtasks, it's the owner that waits.
+ */
+public class SchedulingRateLimiter {
+
+	private final long intervalInNanos;
+	private final long burstInNanos;
+	private final AtomicLong theoreticalArrivalTime;
+
+	public SchedulingRateLimiter(int permits, Duration period) {
+		if (permits <= 0)
+			throw new IllegalArgumentException("Number of permits must be positive");
+		this.intervalInNanos = period.toNanos() / permits;
+		this.burstInNanos = (permits - 1) * intervalInNanos;
+		this.theoreticalArrivalTime = new AtomicLong(System.nanoTime());
+	}
+
+	/**
+	 * Reserves the next free slot.
+	 *
+	 * @return the {@link System#nanoTime() nano time} at which the caller may proceed
+	 */
+	public long reserve() {
+		while (true) {
+			var now = System.nanoTime();
+			var current = theoreticalArrivalTime.get();
+			var arrival = current - now > 0 ? current : now;
+			if (theoreticalArrivalTime.compareAndSet(current, arrival + intervalInNanos)) {
+				var slot = arrival - burstInNanos;
+				return slot - now > 0 ? slot : now;
+			}
+		}
+	}
+
+	/**
+	 * Waits until the next free slot and then forks the task.
+	 *
+	 * @throws InterruptedException if the current thread was interrupted while waiting (the task is not forked)
+	 */
+	public <T, U extends T> Subtask<U> fork(StructuredTaskScope<T, ?> scope, Callable<? extends U> task)
+			throws InterruptedException {
+		awaitSlot(reserve());
+		return scope.fork(task);
+	}
+
+	/**
+	 * Waits until the next free slot and then executes the task.
+	 *
+	 * @throws InterruptedException if the current thread was interrupted while waiting (the task is not executed)
+	 * @throws Exception if the task threw an exception
+	 */
+	public <T> T call(Callable<T> task) throws Exception {
+		awaitSlot(reserve());
+		return task.call();
+	}
+
+	private static void awaitSlot(long slot) throws InterruptedException {
+		var wait = slot - System.nanoTime();
+		if (wait > 0)
+			TimeUnit.NANOSECONDS.sleep(wait);
+	}
+
+}
@@ -0,0 +1,6 @@
+/**
+ * Resilience building blocks that are tailored to virtual threads and structured concurrency,
+ * e.g. by waiting in the calling (virtual) thread or by rejecting work before a subtask is forked.
+ * Like the rest of this project, they are demos and not production-ready.
+ */
+package dev.nipafx.scia.resilience;
@@ -10,6 +10,10 @@ public sealed interface Behavior {
 		return new Busy(runtimeInMs);
 	}
 
+	static Behavior runBusyCooperatively(int runtimeInMs) {
+		return new CooperativeBusy(runtimeInMs);
+	}
+
 	static Behavior runIndefinitely() {
 		return new RunIndefinitely();
 	}
@@ -24,6 +28,7 @@ public sealed interface Behavior {
 
 	record Run(int runtimeInMs) implements Behavior { }
 	record Busy(int runtimeInMs) implements Behavior { }
+	record CooperativeBusy(int runtimeInMs) implements Behavior { }
 	record RunIndefinitely() implements Behavior { }
 	record RunOrFail(int runtimeInMs, float failureRate) implements Behavior { }
 	record Fail(int runtimeInMs) implements Behavior { }
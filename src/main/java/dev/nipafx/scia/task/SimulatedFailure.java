@@ -0,0 +1,31 @@
+package dev.nipafx.scia.task;
+
+import java.io.IOException;
+
+/**
+ * The failure a {@link Task} throws when its {@link Behavior} tells it to fail.
+ *
+ * <p>Capturing a stack trace walks the entire stack, which dominates the cost of a simulated failure
+ * when many tasks fail. Since the trace of an expected failure carries no information, capturing it
+ * can be turned off with {@link #captureStackTraces(boolean)}. Unexpected exceptions are unaffected.
+ */
+public class SimulatedFailure extends IOException {
+
+	private static volatile boolean captureStackTraces = true;
+
+	SimulatedFailure() {
+		super("The task failed");
+	}
+
+	public static void captureStackTraces(boolean capture) {
+		captureStackTraces = capture;
+	}
+
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		// called by the constructor - instances can't be shared instead because
+		// suppressed exceptions would accumulate on them
+		return captureStackTraces ? super.fillInStackTrace() : this;
+	}
+
+}
@@ -1,6 +1,9 @@
 package dev.nipafx.scia.task;
 
+import dev.nipafx.scia.misc.Checkpoint;
+import dev.nipafx.scia.misc.Deadline;
 import dev.nipafx.scia.task.Behavior.Busy;
+import dev.nipafx.scia.task.Behavior.CooperativeBusy;
 import dev.nipafx.scia.task.Behavior.Fail;
 import dev.nipafx.scia.task.Behavior.Run;
 import dev.nipafx.scia.task.Behavior.RunIndefinitely;
@@ -9,7 +12,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.StructuredTaskScope.Subtask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.joining;
@@ -18,31 +30,55 @@ public class Task {
 
 	private static final Logger LOG = LoggerFactory.getLogger(Task.class);
 
+	private static final State[] STATES = State.values();
+	private static final int STATE_BITS = 3;
+	private static final long STATE_MASK = (1L << STATE_BITS) - 1;
+	private static final int HISTORY_CAPACITY = 8;
+	private static final int SEQUENCE_BITS = 16;
+	private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+	// the remaining 45 bits hold millis (more than a thousand years), so they can't wrap in practice
+	private static final long MAX_MILLIS = (1L << (Long.SIZE - SEQUENCE_BITS - STATE_BITS)) - 1;
+	// how often a reader checks a slot whose write is still pending before it skips that transition
+	private static final int MAX_SPINS = 1_000;
+
+	private static final Set<State> RUN_SOURCES = EnumSet.of(State.CREATED, State.ROLLED_BACK);
+	private static final Set<State> FINISH_SOURCES = EnumSet.of(State.LAUNCHED);
+	private static final Set<State> ROLL_BACK_SOURCES = EnumSet.of(State.CANCELED, State.FAILED);
+
 	private final String name;
-	private State state;
+	private final long createdAt;
+	// the number of transitions in the upper bits, the current state's ordinal in the lower
+	private final AtomicLong state;
+	// a ring of the most recent transitions, each with the millis since creation in the upper bits, the lower
+	// bits of its sequence number `n` in the middle, and the new state's ordinal in the lowest bits -
+	// slot `n % capacity` holds the `n`-th transition
+	private final AtomicLongArray history;
 
 	public Task(String name) {
 		this.name = name;
-		this.state = State.CREATED;
+		this.createdAt = System.nanoTime();
+		this.state = new AtomicLong(State.CREATED.ordinal());
+		this.history = new AtomicLongArray(HISTORY_CAPACITY);
+		this.history.set(0, State.CREATED.ordinal());
 	}
 
 	public void run(Behavior behavior) throws InterruptedException, IOException {
-		if (state != State.CREATED && state != State.ROLLED_BACK)
-			throw new IllegalStateException("Can't run a task with state '%s'.".formatted(state));
-		if (state == State.CREATED)
+		var previous = transition(RUN_SOURCES, State.LAUNCHED);
+		if (previous.isEmpty())
+			throw new IllegalStateException("Can't run a task with state '%s'.".formatted(state()));
+		if (previous.get() == State.CREATED)
 			LOG.info("Task {} launched with behavior {}", name, behavior);
 		else
 			LOG.info("Task {} relaunched with behavior {}", name, behavior);
-		state = State.LAUNCHED;
 
 		switch (behavior) {
 			case Run(var runtimeInMs) -> {
 				try {
 					Thread.sleep(runtimeInMs);
-					state = State.COMPLETED;
+					finish(State.COMPLETED);
 					LOG.info("Task {} completed", name);
 				} catch (InterruptedException ex) {
-					state = State.CANCELED;
+					finish(State.CANCELED);
 					LOG.info("Task {} canceled", name);
 					throw ex;
 				}
@@ -52,16 +88,33 @@ public class Task {
 				var currentTime = System.currentTimeMillis();
 				while (currentTime - startTime < runtimeInMs)
 					currentTime = System.currentTimeMillis();
-				state = State.COMPLETED;
+				finish(State.COMPLETED);
 				LOG.info("Task {} completed", name);
 			}
+			case CooperativeBusy(var runtimeInMs) -> {
+				try {
+					var checkpoint = Checkpoint.yieldingEvery(Duration.ofMillis(10));
+					var startTime = System.currentTimeMillis();
+					var currentTime = System.currentTimeMillis();
+					while (currentTime - startTime < runtimeInMs) {
+						checkpoint.check();
+						currentTime = System.currentTimeMillis();
+					}
+					finish(State.COMPLETED);
+					LOG.info("Task {} completed", name);
+				} catch (InterruptedException | Deadline.ExceededException ex) {
+					finish(State.CANCELED);
+					LOG.info("Task {} canceled", name);
+					throw ex;
+				}
+			}
 			case RunIndefinitely _ -> {
 				try {
 					Thread.sleep(Long.MAX_VALUE);
-					state = State.COMPLETED;
+					finish(State.COMPLETED);
 					LOG.info("Task {} completed", name);
 				} catch (InterruptedException ex) {
-					state = State.CANCELED;
+					finish(State.CANCELED);
 					LOG.info("Task {} canceled", name);
 					throw ex;
 				}
@@ -71,15 +124,15 @@ public class Task {
 					Thread.sleep(runtimeInMs);
 					var succeeded = Math.random() >= failureRate;
 					if (succeeded) {
-						state = State.COMPLETED;
+						finish(State.COMPLETED);
 						LOG.info("Task {} completed", name);
 					} else {
-						state = State.FAILED;
+						finish(State.FAILED);
 						LOG.info("Task {} failed", name);
-						throw new IOException("The task failed");
+						throw new SimulatedFailure();
 					}
 				} catch (InterruptedException ex) {
-					state = State.CANCELED;
+					finish(State.CANCELED);
 					LOG.info("Task {} canceled", name);
 					throw ex;
 				}
@@ -87,11 +140,11 @@ public class Task {
 			case Fail(var runtimeInMs) -> {
 				try {
 					Thread.sleep(runtimeInMs);
-					state = State.FAILED;
+					finish(State.FAILED);
 					LOG.info("Task {} failed", name);
-					throw new IOException("The task failed");
+					throw new SimulatedFailure();
 				} catch (InterruptedException ex) {
-					state = State.CANCELED;
+					finish(State.CANCELED);
 					LOG.info("Task {} canceled", name);
 					throw ex;
 				}
@@ -114,16 +167,85 @@ public class Task {
 	}
 
 	public void rollBack() {
-		if (state != State.CANCELED && state != State.FAILED)
-			throw new IllegalStateException("Can't roll back a task with state '%s'.".formatted(state));
+		if (transition(ROLL_BACK_SOURCES, State.ROLLED_BACK).isEmpty())
+			throw new IllegalStateException("Can't roll back a task with state '%s'.".formatted(state()));
 
-		state = State.ROLLED_BACK;
 		LOG.info("Task {} rolled back", name);
 	}
 
+	// STATE
+
+	public State state() {
+		return STATES[(int) (state.get() & STATE_MASK)];
+	}
+
+	/**
+	 * @return the most recent transitions (at most eight), oldest first
+	 */
+	public List<Transition> history() {
+		var count = state.get() >>> STATE_BITS;
+		var oldest = Math.max(0, count - HISTORY_CAPACITY + 1);
+		var transitions = new ArrayList<Transition>();
+		for (var n = oldest; n <= count; n++) {
+			// the count is published before the slot is written, so the slot may still hold an older transition
+			// (then wait a little for the write) or may already hold a newer one (then the `n`-th transition is gone)
+			long transition;
+			int lag;
+			var spins = 0;
+			do {
+				if (spins > 0)
+					Thread.onSpinWait();
+				transition = history.get((int) (n % HISTORY_CAPACITY));
+				lag = (short) (((transition >>> STATE_BITS) & SEQUENCE_MASK) - (n & SEQUENCE_MASK));
+			} while (lag < 0 && ++spins < MAX_SPINS);
+			if (lag != 0)
+				continue;
+			transitions.add(new Transition(
+					STATES[(int) (transition & STATE_MASK)],
+					Duration.ofMillis(transition >>> (SEQUENCE_BITS + STATE_BITS))));
+		}
+		return transitions;
+	}
+
+	private void finish(State outcome) {
+		if (transition(FINISH_SOURCES, outcome).isEmpty())
+			throw new IllegalStateException("Can't finish a task with state '%s'.".formatted(state()));
+	}
+
+	/**
+	 * Atomically transitions to {@code target} if the current state is one of {@code sources}.
+	 *
+	 * @return the state before the transition if it happened, otherwise an empty {@code Optional}
+	 */
+	private Optional<State> transition(Set<State> sources, State target) {
+		while (true) {
+			var current = state.get();
+			var currentState = STATES[(int) (current & STATE_MASK)];
+			if (!sources.contains(currentState))
+				return Optional.empty();
+
+			var count = (current >>> STATE_BITS) + 1;
+			if (state.compareAndSet(current, (count << STATE_BITS) | target.ordinal())) {
+				// readers recognize by the sequence number whether this write already happened
+				var sinceCreation = Math.min(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - createdAt), MAX_MILLIS);
+				history.set(
+						(int) (count % HISTORY_CAPACITY),
+						(sinceCreation << (SEQUENCE_BITS + STATE_BITS))
+								| ((count & SEQUENCE_MASK) << STATE_BITS)
+								| target.ordinal());
+				return Optional.of(currentState);
+			}
+		}
+	}
+
+	/**
+	 * @param at the time since the task was created
+	 */
+	public record Transition(State state, Duration at) { }
+
 	@Override
 	public String toString() {
-		return "Task %s (%s)".formatted(name, state);
+		return "Task %s (%s)".formatted(name, state());
 	}
 
 	// FORMATTING
@@ -132,7 +254,7 @@ public class Task {
 		return Stream
 				.of(tasks)
 				.map(task -> "%s Thread %s (%s)".formatted(
-						switch (task.state) {
+						switch (task.state()) {
 							case CREATED -> "✨";
 							case LAUNCHED -> "🚀";
 							case ROLLED_BACK -> "↩️";
@@ -140,10 +262,20 @@ public class Task {
 							case FAILED -> "❌️";
 							case COMPLETED -> "✅";
 						},
-						task.name, task.state.toString().toLowerCase()))
+						task.name, task.state().toString().toLowerCase()))
 				.collect(joining("\n\t", "State:\n\t", ""));
 	}
 
+	public static String formatHistories(Task... tasks) {
+		return Stream
+				.of(tasks)
+				.map(task -> task.history().stream()
+						.map(transition -> "%s@%dms".formatted(
+								transition.state().toString().toLowerCase(), transition.at().toMillis()))
+						.collect(joining(" → ", "Thread %s: ".formatted(task.name), "")))
+				.collect(joining("\n\t", "History:\n\t", ""));
+	}
+
 	public static String formatResults(Subtask<?>... tasks) {
 		return Stream
 				.of(tasks)